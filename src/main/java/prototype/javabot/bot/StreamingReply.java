@@ -0,0 +1,59 @@
+package prototype.javabot.bot;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Накопленный текст потокового ответа и момент последнего редактирования сообщения-заглушки.
+ * Используется из одного потока (после publishOn), поэтому синхронизация не нужна.
+ */
+class StreamingReply {
+
+    @Getter
+    private final String chatId;
+    @Getter
+    private final Integer messageId;
+    @Getter
+    private final String header;
+
+    private final long editIntervalNanos;
+    private final StringBuilder text = new StringBuilder();
+    private long lastEditAt;
+
+    StreamingReply(String chatId, Integer messageId, String header, Duration editInterval) {
+        this.chatId = chatId;
+        this.messageId = messageId;
+        this.header = header;
+        this.editIntervalNanos = editInterval.toNanos();
+        this.lastEditAt = System.nanoTime();
+    }
+
+    /**
+     * @return true, если с последнего редактирования прошло достаточно времени и сообщение пора обновить
+     */
+    boolean append(String delta) {
+        text.append(delta);
+        long now = System.nanoTime();
+        if (now - lastEditAt >= editIntervalNanos) {
+            lastEditAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    String getText() {
+        return text.toString();
+    }
+
+    String getDisplayText() {
+        return header + text;
+    }
+
+    /**
+     * Текст заглушки после ошибки: уже полученная часть ответа остаётся, ошибка дописывается под ней.
+     */
+    String getFailedText(String errorText) {
+        return text.isEmpty() ? errorText : getDisplayText() + "\n\n⚠️ " + errorText;
+    }
+}
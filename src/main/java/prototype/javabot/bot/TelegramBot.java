@@ -1,37 +1,61 @@
 package prototype.javabot.bot;
 
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.MaybeInaccessibleMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import prototype.javabot.model.ContentIdea;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import prototype.javabot.bot.callback.CallbackAction;
+import prototype.javabot.bot.callback.CallbackData;
+import prototype.javabot.bot.callback.CallbackRouter;
+import prototype.javabot.bot.dispatch.Lane;
+import prototype.javabot.bot.dispatch.UpdateDispatcher;
+import prototype.javabot.bot.outbound.OutboundMessageQueue;
+import prototype.javabot.bot.outbound.OutboundPriority;
 import prototype.javabot.model.ContentType;
 import prototype.javabot.model.IdeaStatus;
 import prototype.javabot.model.aiSettings.CommunicationStyle;
 import prototype.javabot.model.aiSettings.ContentLength;
 import prototype.javabot.model.aiSettings.ResponseLanguage;
-import prototype.javabot.model.aiSettings.UserAiSetting;
 import prototype.javabot.service.AiService;
 import prototype.javabot.service.BotCommandService;
 import prototype.javabot.service.ContentService;
+import prototype.javabot.service.ContentWriteBehind;
+import prototype.javabot.service.TokenUsageService;
 import prototype.javabot.service.UserStateService;
+import prototype.javabot.service.ai.AiResponseException;
+import prototype.javabot.service.ai.GenerationRequest;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class TelegramBot extends TelegramLongPollingBot {
 
+    private static final String BUDGET_EXCEEDED_MESSAGE =
+            "⏳ Дневной лимит генераций исчерпан. Возвращайтесь завтра! Расход можно посмотреть командой /usage";
+
     private final AiService aiService;
     private final ContentService contentService;
+    private final ContentWriteBehind contentWriteBehind;
     private final BotCommandService commandService;
     private final UserStateService userStateService;
+    private final UpdateDispatcher updateDispatcher;
+    private final TokenUsageService tokenUsageService;
+    private final OutboundMessageQueue outboundQueue;
+    private final CallbackRouter<CallbackContext> callbackRouter;
 
     @Value("${telegram.bot.username}")
     private String botUsername;
@@ -39,8 +63,64 @@ public class TelegramBot extends TelegramLongPollingBot {
     @Value("${telegram.bot.token}")
     private String botToken;
 
+    @Value("${telegram.bot.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    @Value("${telegram.bot.streaming.edit-interval:1s}")
+    private Duration streamingEditInterval;
+
+    public TelegramBot(DefaultBotOptions botOptions,
+                       AiService aiService,
+                       ContentService contentService,
+                       ContentWriteBehind contentWriteBehind,
+                       BotCommandService commandService,
+                       UserStateService userStateService,
+                       UpdateDispatcher updateDispatcher,
+                       TokenUsageService tokenUsageService,
+                       OutboundMessageQueue outboundQueue) {
+        super(botOptions);
+        this.aiService = aiService;
+        this.contentService = contentService;
+        this.contentWriteBehind = contentWriteBehind;
+        this.commandService = commandService;
+        this.userStateService = userStateService;
+        this.updateDispatcher = updateDispatcher;
+        this.tokenUsageService = tokenUsageService;
+        this.outboundQueue = outboundQueue;
+        this.callbackRouter = createCallbackRouter();
+    }
+
+    @PostConstruct
+    void startOutboundQueue() {
+        outboundQueue.start(this);
+    }
+
     @Override
     public void onUpdateReceived(Update update) {
+        if (update.hasCallbackQuery()) {
+            answerCallbackQuery(update.getCallbackQuery());
+        }
+        String chatId = extractChatId(update);
+        if (chatId == null) {
+            log.debug("Обновление {} без чата пропущено", update.getUpdateId());
+            return;
+        }
+        // Все обновления чата — в одной полосе и строго по порядку: кнопка типа контента или настроек
+        // всегда применяется до следующего за ней промпта. Запуск генерации не блокирует воркер,
+        // а доставка её результата идёт в AI-полосе.
+        updateDispatcher.dispatch(Lane.INTERACTIVE, chatId, () -> processUpdate(update));
+    }
+
+    /**
+     * Ответ на нажатие кнопки уходит сразу, ещё до постановки обработки в очередь: клиент перестаёт показывать загрузку.
+     */
+    private void answerCallbackQuery(CallbackQuery callbackQuery) {
+        outboundQueue.submit(null, AnswerCallbackQuery.builder()
+                .callbackQueryId(callbackQuery.getId())
+                .build(), OutboundPriority.CALLBACK_ANSWER);
+    }
+
+    private void processUpdate(Update update) {
         try {
             if (update.hasMessage()) {
                 handleMessage(update.getMessage());
@@ -52,6 +132,16 @@ public class TelegramBot extends TelegramLongPollingBot {
         }
     }
 
+    private String extractChatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId().toString();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId().toString();
+        }
+        return null;
+    }
+
     private void handleMessage(Message message) {
         if (!message.hasText()) return;
 
@@ -70,34 +160,16 @@ public class TelegramBot extends TelegramLongPollingBot {
                 case "/new" -> response = commandService.handleNewContentCommand(chatId);
                 case "/settings" -> response = commandService.handleSettingCommand(chatId);
                 case "/status" -> response = commandService.handleStatusCommand(chatId);
+                case "/usage" -> response = commandService.handleUsageCommand(chatId);
 
                 default -> {
-                    ContentType contentType = userStateService.getUserContentType(chatId);
-                    UserAiSetting aiSetting = userStateService.getUserAiSettings(chatId);
-                    String aiReply;
-
-                    if (contentType != null) {
-                        aiReply = aiService.askAiWithSettings(userMessage, contentType, aiSetting);
-                        userStateService.setLastUserRequests(chatId, userMessage);
-                    } else {
-                        aiReply = aiService.askAiWithSettings(userMessage, null, aiSetting);
-                        userStateService.setLastUserRequests(chatId, userMessage);
-                    }
-
-                    contentService.save(userMessage, aiReply);
-                    response = SendMessage.builder()
-                            .chatId(chatId)
-                            .text(aiReply)
-                            .replyMarkup(commandService.createAiResponseActionsKeyboard())
-                            .build();
+                    handleGeneration(chatId, userMessage);
+                    return;
                 }
             }
 
-            execute(response);
-            log.info("Ответ отправлен пользователю: {}", chatId);
-        } catch (TelegramApiException e) {
-            log.error("Ошибка при отправке сообщения: ", e);
-            sendErrorMessage(chatId, "Извините, произошла ошибка. Попробуйте позже.");
+            send(response)
+                    .thenRun(() -> log.info("Ответ отправлен пользователю: {}", chatId));
         } catch (Exception e) {
             log.error("Неожиданная ошибка при обработке сообщения: ", e);
             sendErrorMessage(chatId, "Произошла неожиданная ошибка.");
@@ -107,117 +179,65 @@ public class TelegramBot extends TelegramLongPollingBot {
     private void handleCallBackQuery(CallbackQuery callbackQuery) {
         String callbackData = callbackQuery.getData();
         String chatId = callbackQuery.getMessage().getChatId().toString();
-        Integer messageId = callbackQuery.getMessage().getMessageId();
 
         log.info("Получен callback: {} от пользователя {}", callbackData, chatId);
 
         try {
-            switch (callbackData) {
-                case "new_content" -> {
-                    SendMessage response = commandService.handleNewContentCommand(chatId);
-                    execute(response);
-                }
-                case "list_ideas" -> {
-                    SendMessage response = commandService.handleListCommand(chatId);
-                    execute(response);
-                }
-                case "settings_menu" -> {
-                    SendMessage response = commandService.handleSettingCommand(chatId);
-                    execute(response);
-                }
-                case "settings_language" -> {
-                    SendMessage response = commandService.handleLanguageSettingsCommand(chatId);
-                    execute(response);
-                }
-                case "settings_length" -> {
-                    SendMessage response = commandService.handleLengthSettingsCommand(chatId);
-                    execute(response);
-                }
-                case "settings_style" -> {
-                    SendMessage response = commandService.handleStyleSettingsCommand(chatId);
-                    execute(response);
-                }
-                case "status_management" -> {
-                    SendMessage response = commandService.handleStatusCommand(chatId);
-                    execute(response);
-                }
-                case "help" -> {
-                    SendMessage response = commandService.handleHelpCommand(chatId);
-                    execute(response);
-                }
-                case "back_to_main" -> {
-                    SendMessage response = commandService.handleStartCommand(chatId);
-                    execute(response);
-                }
-                case "refresh_list" -> {
-                    EditMessageText editMessage = EditMessageText.builder()
-                            .chatId(chatId)
-                            .messageId(messageId)
-                            .text("🔄 Обновляю список...")
-                            .build();
-                    execute(editMessage);
-
-                    Thread.sleep(500);
-                    SendMessage response = commandService.handleListCommand(chatId);
-                    execute(response);
-                }
-                case "retry_generation" -> {
-                    handleRetryGeneration(chatId);
-                }
-                case "edit_request" -> {
-                    handleEditRequest(chatId);
-                }
-                case "content_post", "content_reel", "content_story", "content_hashtags", "content_title" -> {
-                    handleContentTypeSelection(chatId, callbackData);
-                }
-                default -> {
-                    if (callbackData.startsWith("manage_idea_")) {
-                        String ideaIdStr = callbackData.replace("manage_idea_", "");
-                        try {
-                            Long ideaId = Long.parseLong(ideaIdStr);
-                            SendMessage response = commandService.handleChangeIdeaStatusCommand(chatId, ideaId);
-                            execute(response);
-                            return;
-                        } catch (NumberFormatException e) {
-                            log.warn("Неверный ID идеи: {}", ideaIdStr);
-                            sendErrorMessage(chatId, "Ошибка: неверный ID идеи");
-                            return;
-                        }
-                    }
-                    if (callbackData.startsWith("filter_status_")) {
-                        String statusName = callbackData.replace("filter_status_", "");
-                        try {
-                            IdeaStatus status = IdeaStatus.valueOf(statusName);
-                            SendMessage response = commandService.handleFilteredListCommand(chatId, status);
-                            execute(response);
-                        } catch (TelegramApiException ex) {
-                            log.warn("Неизвестный статус: {}", statusName);
-                        }
-                    }
-
-                    if (callbackData.startsWith("change_status_")) {
-                        handleChangeIdeaStatus(chatId, callbackData);
-                        return;
-                    }
-                    if (callbackData.startsWith("delete_idea_")){
-                        handleDeleteIdea(chatId, callbackData);
-                        return;
-                    }
-                    if (handleAiSettingsCallback(chatId, callbackData)) {
-                        return;
-                    }
-                    if (handleAiSettingsCallback(chatId, callbackData)) return;
-
-                    log.warn("Неизвестный callback: {}", callbackData);
-                }
+            if (!callbackRouter.dispatch(new CallbackContext(chatId, callbackQuery.getMessage()), callbackData)) {
+                log.warn("Неизвестный callback: {}", callbackData);
             }
+        } catch (IllegalArgumentException e) {
+            log.warn("Некорректные данные callback {}: {}", callbackData, e.getMessage());
+            sendErrorMessage(chatId, "Ошибка обработки команды");
         } catch (Exception e) {
             log.error("Ошибка при обработке callback: ", e);
             sendErrorMessage(chatId, "Ошибка при обработке команды.");
         }
     }
 
-    private void handleRetryGeneration(String chatId) throws TelegramApiException {
+    /**
+     * Обработчики кнопок регистрируются один раз; нажатие находит свой обработчик по коду действия.
+     */
+    private CallbackRouter<CallbackContext> createCallbackRouter() {
+        return CallbackRouter.<CallbackContext>builder()
+                .on(CallbackAction.NEW_CONTENT, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleNewContentCommand(ctx.chatId())))
+                .on(CallbackAction.LIST_IDEAS, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleListCommand(ctx.chatId())))
+                .on(CallbackAction.REFRESH_LIST, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleListCommand(ctx.chatId())))
+                .on(CallbackAction.SETTINGS_MENU, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleSettingCommand(ctx.chatId())))
+                .on(CallbackAction.SETTINGS_LANGUAGE, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleLanguageSettingsCommand(ctx.chatId())))
+                .on(CallbackAction.SETTINGS_LENGTH, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleLengthSettingsCommand(ctx.chatId())))
+                .on(CallbackAction.SETTINGS_STYLE, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleStyleSettingsCommand(ctx.chatId())))
+                .on(CallbackAction.STATUS_MANAGEMENT, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleStatusCommand(ctx.chatId())))
+                .on(CallbackAction.HELP, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleHelpCommand(ctx.chatId())))
+                .on(CallbackAction.BACK_TO_MAIN, (ctx, data) -> showInPlace(ctx.origin(), commandService.handleStartCommand(ctx.chatId())))
+                .on(CallbackAction.RETRY_GENERATION, (ctx, data) -> handleRetryGeneration(ctx.chatId()))
+                .on(CallbackAction.EDIT_REQUEST, (ctx, data) -> handleEditRequest(ctx.chatId()))
+                .on(CallbackAction.CONTENT_TYPE, (ctx, data) -> handleContentTypeSelection(ctx, data.enumArg(0, ContentType.class)))
+                .on(CallbackAction.MANAGE_IDEA, (ctx, data) -> showInPlace(ctx.origin(),
+                        commandService.handleChangeIdeaStatusCommand(ctx.chatId(), data.longArg(0))))
+                .on(CallbackAction.FILTER_STATUS, (ctx, data) -> showInPlace(ctx.origin(),
+                        commandService.handleFilteredListCommand(ctx.chatId(), data.enumArg(0, IdeaStatus.class))))
+                .on(CallbackAction.CHANGE_STATUS, (ctx, data) -> handleChangeIdeaStatus(ctx, data.longArg(0), data.enumArg(1, IdeaStatus.class)))
+                .on(CallbackAction.DELETE_IDEA, (ctx, data) -> handleDeleteIdea(ctx, data.longArg(0)))
+                .on(CallbackAction.SET_LANGUAGE, (ctx, data) -> {
+                    ResponseLanguage language = data.enumArg(0, ResponseLanguage.class);
+                    userStateService.updateUserLanguage(ctx.chatId(), language);
+                    showSettingChanged(ctx, "✅ Язык изменен на: " + language.getDisplayName());
+                })
+                .on(CallbackAction.SET_LENGTH, (ctx, data) -> {
+                    ContentLength length = data.enumArg(0, ContentLength.class);
+                    userStateService.updateUserLength(ctx.chatId(), length);
+                    showSettingChanged(ctx, "✅ Длина контента изменена на: " + length.getDisplayName());
+                })
+                .on(CallbackAction.SET_STYLE, (ctx, data) -> {
+                    CommunicationStyle style = data.enumArg(0, CommunicationStyle.class);
+                    userStateService.updateUserStyle(ctx.chatId(), style);
+                    showSettingChanged(ctx, "✅ Стиль общения изменен на: " + style.getDisplayName());
+                })
+                .build();
+    }
+
+    private void handleRetryGeneration(String chatId) {
         String lastRequest = userStateService.getLastUserRequest(chatId);
         ContentType contentType = userStateService.getUserContentType(chatId);
 
@@ -226,35 +246,161 @@ public class TelegramBot extends TelegramLongPollingBot {
             return;
         }
 
-        SendMessage loadingMessage = new SendMessage(chatId, "🔄 Генерирую новый вариант...");
-        execute(loadingMessage);
+        if (tokenUsageService.isOverBudget(chatId)) {
+            sendErrorMessage(chatId, BUDGET_EXCEEDED_MESSAGE);
+            return;
+        }
 
-        try {
-            String aiReply;
-            UserAiSetting aiSetting = userStateService.getUserAiSettings(chatId);
+        CompletableFuture<Message> placeholder = send(new SendMessage(chatId, "🔄 Генерирую новый вариант..."));
+
+        GenerationRequest request = GenerationRequest.builder()
+                .prompt(lastRequest)
+                .contentType(contentType)
+                .aiSetting(userStateService.getUserAiSettings(chatId))
+                .freshVariant(true)
+                .chatId(chatId)
+                .build();
+
+        if (streamingEnabled) {
+            streamGeneration(placeholder, "✨ Новый вариант:\n\n", request);
+            return;
+        }
+
+        aiService.generate(request)
+                .publishOn(updateDispatcher.scheduler(Lane.AI, chatId))
+                .subscribe(
+                        aiReply -> sendAiReply(chatId, lastRequest, "✨ Новый вариант:\n\n" + aiReply, aiReply),
+                        e -> {
+                            log.error("Ошибка при повторной генерации: ", e);
+                            sendErrorMessage(chatId, "Произошла ошибка при генерации. Попробуйте еще раз.");
+                        });
+    }
+
+    /**
+     * Запускает генерацию и сразу возвращает управление: ответ отправляется,
+     * когда AI закончит, так что медленная генерация не задерживает другие чаты.
+     */
+    private void handleGeneration(String chatId, String userMessage) {
+        if (tokenUsageService.isOverBudget(chatId)) {
+            sendErrorMessage(chatId, BUDGET_EXCEEDED_MESSAGE);
+            return;
+        }
+
+        GenerationRequest request = GenerationRequest.builder()
+                .prompt(userMessage)
+                .contentType(userStateService.getUserContentType(chatId))
+                .aiSetting(userStateService.getUserAiSettings(chatId))
+                .chatId(chatId)
+                .build();
+        userStateService.setLastUserRequests(chatId, userMessage);
+
+        if (streamingEnabled) {
+            streamGeneration(send(new SendMessage(chatId, "✍️ Генерирую...")), "", request);
+            return;
+        }
+
+        aiService.generate(request)
+                .publishOn(updateDispatcher.scheduler(Lane.AI, chatId))
+                .subscribe(
+                        aiReply -> sendAiReply(chatId, userMessage, aiReply, aiReply),
+                        e -> {
+                            log.error("Неожиданная ошибка при обработке сообщения: ", e);
+                            sendErrorMessage(chatId, "Произошла неожиданная ошибка.");
+                        });
+    }
 
-            if (contentType != null) {
-                aiReply = aiService.askAiWithSettings(lastRequest, contentType, aiSetting);
-            } else {
-                aiReply = aiService.askAiWithSettings(lastRequest, null, aiSetting);
+    /**
+     * Потоковый режим: заглушка редактируется по мере генерации не чаще раза в streamingEditInterval,
+     * по окончании потока текст сохраняется и к сообщению добавляется клавиатура действий.
+     */
+    private void streamGeneration(CompletableFuture<Message> placeholder, String header, GenerationRequest request) {
+        placeholder.whenComplete((message, e) -> {
+            if (e != null) {
+                sendErrorMessage(request.getChatId(), "Извините, произошла ошибка. Попробуйте позже.");
+                return;
             }
+            streamGeneration(new StreamingReply(request.getChatId(), message.getMessageId(), header, streamingEditInterval), request);
+        });
+    }
+
+    private void streamGeneration(StreamingReply reply, GenerationRequest request) {
+        aiService.generateStream(request)
+                .publishOn(updateDispatcher.scheduler(Lane.AI, reply.getChatId()))
+                .doOnNext(delta -> {
+                    if (reply.append(delta)) {
+                        editStreamingMessage(reply, reply.getDisplayText(), null);
+                    }
+                })
+                .then(Mono.fromSupplier(reply::getText))
+                .subscribe(
+                        aiReply -> finishStreamingReply(reply, request.getPrompt(), aiReply),
+                        e -> {
+                            log.error("Ошибка при потоковой генерации: ", e);
+                            String errorText = e instanceof AiResponseException aiResponseException
+                                    ? aiResponseException.getUserMessage()
+                                    : "Произошла ошибка при генерации. Попробуйте еще раз.";
+                            editStreamingMessage(reply, reply.getFailedText(errorText), null);
+                        });
+    }
+
+    private void finishStreamingReply(StreamingReply reply, String prompt, String aiReply) {
+        if (aiReply.isBlank()) {
+            editStreamingMessage(reply, "Извините получен пустой ответ от AI", null);
+            return;
+        }
+        editStreamingMessage(reply, reply.getDisplayText(), commandService.createAiResponseActionsKeyboard());
+        saveGeneratedContent(reply.getChatId(), prompt, aiReply);
+        log.info("Потоковый ответ завершён для пользователя: {}", reply.getChatId());
+    }
 
-            contentService.save(lastRequest, aiReply);
+    /**
+     * Правки одного сообщения, не успевшие уйти из-за лимитов, склеиваются очередью в последнюю,
+     * поэтому итоговый текст или ошибка заменяют ещё не отправленный промежуточный.
+     */
+    private void editStreamingMessage(StreamingReply reply, String text, InlineKeyboardMarkup keyboard) {
+        outboundQueue.submit(reply.getChatId(), EditMessageText.builder()
+                .chatId(reply.getChatId())
+                .messageId(reply.getMessageId())
+                .text(text)
+                .replyMarkup(keyboard)
+                .build(), OutboundPriority.BULK);
+    }
 
+    private void sendAiReply(String chatId, String prompt, String text, String aiReply) {
+        try {
             SendMessage response = SendMessage.builder()
                     .chatId(chatId)
-                    .text("✨ Новый вариант:\n\n" + aiReply)
+                    .text(text)
                     .replyMarkup(commandService.createAiResponseActionsKeyboard())
                     .build();
 
-            execute(response);
+            send(response, OutboundPriority.BULK)
+                    .thenRun(() -> log.info("Ответ отправлен пользователю: {}", chatId));
         } catch (Exception e) {
-            log.error("Ошибка при повторной генерации: ", e);
-            sendErrorMessage(chatId, "Произошла ошибка при генерации. Попробуйте еще раз.");
+            log.error("Неожиданная ошибка при обработке сообщения: ", e);
+            sendErrorMessage(chatId, "Произошла неожиданная ошибка.");
         }
+        saveGeneratedContent(chatId, prompt, aiReply);
     }
 
-    private void handleEditRequest(String chatId) throws TelegramApiException {
+    /**
+     * Сохранение идёт после отправки ответа и не ждёт БД: идея попадает в очередь пакетной записи,
+     * а если та недоступна — сохраняется в полосе persistence.
+     */
+    private void saveGeneratedContent(String chatId, String prompt, String aiReply) {
+        if (contentWriteBehind.enqueue(chatId, prompt, aiReply)) {
+            return;
+        }
+        updateDispatcher.dispatch(Lane.PERSISTENCE, chatId, () -> {
+            try {
+                contentService.save(chatId, prompt, aiReply);
+            } catch (Exception e) {
+                log.error("Не удалось сохранить сгенерированный контент: ", e);
+            }
+        });
+    }
+
+    private void handleEditRequest(String chatId) {
         String lastRequest = userStateService.getLastUserRequest(chatId);
         ContentType contentType = userStateService.getUserContentType(chatId);
 
@@ -275,71 +421,30 @@ public class TelegramBot extends TelegramLongPollingBot {
         );
 
         SendMessage response = new SendMessage(chatId, instruction);
-        execute(response);
+        send(response);
     }
 
-    private boolean handleAiSettingsCallback(String chatId, String callbackData) throws TelegramApiException {
-
-        ResponseLanguage language = ResponseLanguage.fromCallbackData(callbackData);
-        if (language != null) {
-            userStateService.updateUserLanguage(chatId, language);
-            SendMessage response = SendMessage.builder()
-                    .chatId(chatId)
-                    .text("✅ Язык изменен на: " + language.getDisplayName())
-                    .replyMarkup(commandService.createSettingMenuKeyboard())
-                    .build();
-            execute(response);
-            return true;
-        }
-
-        ContentLength length = ContentLength.fromCallbackData(callbackData);
-        if (length != null) {
-            userStateService.updateUserLength(chatId, length);
-            SendMessage response = SendMessage.builder()
-                    .chatId(chatId)
-                    .text("✅ Длина контента изменена на: " + length.getDisplayName())
-                    .replyMarkup(commandService.createSettingMenuKeyboard())
-                    .build();
-            execute(response);
-            return true;
-        }
-
-        // Проверяем стиль
-        CommunicationStyle style = CommunicationStyle.fromCallbackData(callbackData);
-        if (style != null) {
-            userStateService.updateUserStyle(chatId, style);
-            SendMessage response = SendMessage.builder()
-                    .chatId(chatId)
-                    .text("✅ Стиль общения изменен на: " + style.getDisplayName())
-                    .replyMarkup(commandService.createSettingMenuKeyboard())
-                    .build();
-            execute(response);
-            return true;
-        }
-
-        return false; // Callback не был обработан
+    private void showSettingChanged(CallbackContext ctx, String text) {
+        aiService.discardPrefetchedVariants(ctx.chatId());
+        SendMessage response = SendMessage.builder()
+                .chatId(ctx.chatId())
+                .text(text)
+                .replyMarkup(commandService.createSettingMenuKeyboard())
+                .build();
+        showInPlace(ctx.origin(), response);
     }
 
-    private void handleChangeIdeaStatus(String chatId, String callbackData)throws TelegramApiException {
-        String[] parts = callbackData.split("_");
-        if (parts.length != 4) {
-            sendErrorMessage(chatId, "Ошибка обработки команды");
-            return;
-        }
+    private void handleChangeIdeaStatus(CallbackContext ctx, Long ideaId, IdeaStatus newStatus) {
+        String chatId = ctx.chatId();
         try {
-            Long ideaId = Long.parseLong(parts[2]);
-            IdeaStatus newStatus = IdeaStatus.valueOf(parts[3]);
-
-            ContentIdea updatedIdea = contentService.updateStatus(ideaId, newStatus);
-
-            if (updatedIdea != null) {
+            if (contentService.updateStatus(chatId, ideaId, newStatus)) {
                 SendMessage response = SendMessage.builder()
                         .chatId(chatId)
                         .text(String.format("✅ Статус идеи #%d изменен на: %s",
                                 ideaId, getStatusName(newStatus)))
                         .replyMarkup(commandService.createStatusManagementKeyboard())
                         .build();
-                execute(response);
+                showInPlace(ctx.origin(), response);
             }else {
                 sendErrorMessage(chatId, "Идея не найдена");
             }
@@ -349,57 +454,88 @@ public class TelegramBot extends TelegramLongPollingBot {
         }
     }
 
-    private void handleDeleteIdea(String chatId, String callbackData) throws TelegramApiException {
-        String[] parts = callbackData.split("_");
-        if (parts.length != 3) {
-            sendErrorMessage(chatId, "Ошибка обработки команды");
-            return;
-        }
-
+    private void handleDeleteIdea(CallbackContext ctx, Long ideaId) {
+        String chatId = ctx.chatId();
         try {
-            Long ideaId = Long.parseLong(parts[2]);
-            contentService.delete(ideaId);
+            if (!contentService.delete(chatId, ideaId)) {
+                sendErrorMessage(chatId, "Идея не найдена");
+                return;
+            }
 
             SendMessage response = SendMessage.builder()
                     .chatId(chatId)
                     .text(String.format("🗑️ Идея #%d удалена", ideaId))
                     .replyMarkup(commandService.createStatusManagementKeyboard())
                     .build();
-            execute(response);
+            showInPlace(ctx.origin(), response);
         }catch (Exception e) {
             log.error("Ошибка при удалении идеи: ", e);
             sendErrorMessage(chatId, "Произошла ошибка при удалении");
         }
     }
 
-    private void handleContentTypeSelection(String chatId, String contentType) throws TelegramApiException {
-        ContentType type = ContentType.fromCallbackData(contentType);
+    private void handleContentTypeSelection(CallbackContext ctx, ContentType type) {
+        String chatId = ctx.chatId();
+        userStateService.setUserContentType(chatId, type);
+        aiService.discardPrefetchedVariants(chatId);
 
-        if (type != null) {
-            userStateService.setUserContentType(chatId, type);
+        String instruction = String.format(
+                "✅ Выбран тип: %s\n\n" +
+                        "📝 Теперь опишите тему или отправьте свой запрос, и я сгенерирую специализированный контент!\n\n" +
+                        "💡 Например: \"мотивация к спорту\" или \"здоровое питание\"",
+                type.getDisplayName()
+        );
 
-            String instruction = String.format(
-                    "✅ Выбран тип: %s\n\n" +
-                            "📝 Теперь опишите тему или отправьте свой запрос, и я сгенерирую специализированный контент!\n\n" +
-                            "💡 Например: \"мотивация к спорту\" или \"здоровое питание\"",
-                    type.getDisplayName()
-            );
+        SendMessage response = new SendMessage(chatId, instruction);
+        showInPlace(ctx.origin(), response);
+    }
 
-            SendMessage response = new SendMessage(chatId, instruction);
-            execute(response);
-        } else {
-            log.warn("Неизвестный тип контента: {}", contentType);
-            sendErrorMessage(chatId, "Неизвестный тип контента");
+    /**
+     * Навигация по меню: исходное сообщение с кнопками редактируется на месте вместо отправки нового.
+     * Ответ AI под кнопками не затирается — для него, как и для недоступных сообщений и ответов без inline-клавиатуры,
+     * отправляется новое сообщение.
+     */
+    private void showInPlace(MaybeInaccessibleMessage origin, SendMessage response) {
+        if (!(origin instanceof Message message) || isAiReply(message) || response.getReplyMarkup() != null && !(response.getReplyMarkup() instanceof InlineKeyboardMarkup)) {
+            send(response);
+            return;
         }
+        outboundQueue.submit(response.getChatId(), EditMessageText.builder()
+                .chatId(response.getChatId())
+                .messageId(origin.getMessageId())
+                .text(response.getText())
+                .parseMode(response.getParseMode())
+                .disableWebPagePreview(response.getDisableWebPagePreview())
+                .replyMarkup((InlineKeyboardMarkup) response.getReplyMarkup())
+                .build(), OutboundPriority.INTERACTIVE);
+    }
+
+    private boolean isAiReply(Message message) {
+        InlineKeyboardMarkup keyboard = message.getReplyMarkup();
+        return keyboard != null && keyboard.getKeyboard().stream()
+                .flatMap(List::stream)
+                .anyMatch(button -> isRetryGeneration(button.getCallbackData()));
+    }
+
+    private static boolean isRetryGeneration(String callbackData) {
+        CallbackData data = CallbackData.decode(callbackData);
+        return data != null && data.is(CallbackAction.RETRY_GENERATION);
     }
 
     private void sendErrorMessage(String chatId, String errorText) {
-        try {
-            SendMessage errorMessage = new SendMessage(chatId, errorText);
-            execute(errorMessage);
-        } catch (TelegramApiException e) {
-            log.error("Не удалось отправить сообщение об ошибке: ", e);
-        }
+        send(new SendMessage(chatId, errorText));
+    }
+
+    /**
+     * Все сообщения уходят через очередь отправки: она соблюдает лимиты Telegram и не блокирует воркер.
+     * Ошибки отправки очередь логирует сама.
+     */
+    private CompletableFuture<Message> send(SendMessage message) {
+        return send(message, OutboundPriority.INTERACTIVE);
+    }
+
+    private CompletableFuture<Message> send(SendMessage message, OutboundPriority priority) {
+        return outboundQueue.submit(message.getChatId(), message, priority);
     }
     private String getStatusName(IdeaStatus status) {
         return switch (status) {
@@ -409,6 +545,12 @@ public class TelegramBot extends TelegramLongPollingBot {
         };
     }
 
+    /**
+     * Чат и сообщение, под которым нажата кнопка.
+     */
+    private record CallbackContext(String chatId, MaybeInaccessibleMessage origin) {
+    }
+
     @Override
     public String getBotUsername() {
         return botUsername;
@@ -0,0 +1,43 @@
+package prototype.javabot.bot.callback;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Действия inline-кнопок и их короткие коды в callback_data (см. {@link CallbackData}).
+ * Коды попадают в уже отправленные сообщения, поэтому существующие менять нельзя — только добавлять новые.
+ */
+@AllArgsConstructor
+@Getter
+public enum CallbackAction {
+    NEW_CONTENT("nc"),
+    LIST_IDEAS("li"),
+    REFRESH_LIST("rl"),
+    SETTINGS_MENU("sm"),
+    SETTINGS_LANGUAGE("sl"),
+    SETTINGS_LENGTH("sn"),
+    SETTINGS_STYLE("ss"),
+    STATUS_MANAGEMENT("st"),
+    HELP("hp"),
+    BACK_TO_MAIN("bm"),
+    RETRY_GENERATION("rg"),
+    EDIT_REQUEST("er"),
+    /** Аргумент: {@link prototype.javabot.model.ContentType}. */
+    CONTENT_TYPE("ct"),
+    /** Аргумент: id идеи. */
+    MANAGE_IDEA("mi"),
+    /** Аргумент: {@link prototype.javabot.model.IdeaStatus}. */
+    FILTER_STATUS("fs"),
+    /** Аргументы: id идеи, новый {@link prototype.javabot.model.IdeaStatus}. */
+    CHANGE_STATUS("cs"),
+    /** Аргумент: id идеи. */
+    DELETE_IDEA("di"),
+    /** Аргумент: {@link prototype.javabot.model.aiSettings.ResponseLanguage}. */
+    SET_LANGUAGE("la"),
+    /** Аргумент: {@link prototype.javabot.model.aiSettings.ContentLength}. */
+    SET_LENGTH("ln"),
+    /** Аргумент: {@link prototype.javabot.model.aiSettings.CommunicationStyle}. */
+    SET_STYLE("sy");
+
+    private final String code;
+}
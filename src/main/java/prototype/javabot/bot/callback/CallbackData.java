@@ -0,0 +1,115 @@
+package prototype.javabot.bot.callback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Компактная версионированная кодировка callback_data: {@code 1:<код>[:<аргумент>...]},
+ * например {@code 1:cs:42:PUBLISHED}. Telegram ограничивает callback_data 64 байтами,
+ * поэтому длина проверяется при кодировании. Кнопки старого формата ({@code change_status_42_PUBLISHED})
+ * из уже отправленных сообщений разбираются через {@link LegacyCallbackData}.
+ */
+public final class CallbackData {
+
+    public static final int MAX_BYTES = 64;
+
+    static final String VERSION = "1";
+    static final char SEPARATOR = ':';
+
+    private static final String[] NO_ARGS = new String[0];
+
+    private final String code;
+    private final String[] args;
+
+    CallbackData(String code, String... args) {
+        this.code = code;
+        this.args = args;
+    }
+
+    public static String encode(CallbackAction action, Object... args) {
+        return encode(action.getCode(), args);
+    }
+
+    /**
+     * Аргументы-перечисления кодируются по name(), остальные — через toString().
+     */
+    public static String encode(String code, Object... args) {
+        StringBuilder data = new StringBuilder(VERSION).append(SEPARATOR).append(code);
+        for (Object arg : args) {
+            String value = arg instanceof Enum<?> constant ? constant.name() : String.valueOf(arg);
+            if (value.indexOf(SEPARATOR) >= 0) {
+                throw new IllegalArgumentException("Аргумент callback не может содержать '" + SEPARATOR + "': " + value);
+            }
+            data.append(SEPARATOR).append(value);
+        }
+        String encoded = data.toString();
+        if (encoded.getBytes(StandardCharsets.UTF_8).length > MAX_BYTES) {
+            throw new IllegalArgumentException("callback_data длиннее " + MAX_BYTES + " байт: " + encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * @return разобранные данные или null, если формат неизвестен
+     */
+    public static CallbackData decode(String data) {
+        if (data == null) {
+            return null;
+        }
+        if (!data.startsWith(VERSION) || data.length() <= VERSION.length() || data.charAt(VERSION.length()) != SEPARATOR) {
+            return LegacyCallbackData.decode(data);
+        }
+        int start = VERSION.length() + 1;
+        int end = data.indexOf(SEPARATOR, start);
+        if (end < 0) {
+            return new CallbackData(data.substring(start), NO_ARGS);
+        }
+        String code = data.substring(start, end);
+        String[] args = new String[4];
+        int count = 0;
+        while (end >= 0) {
+            start = end + 1;
+            end = data.indexOf(SEPARATOR, start);
+            if (count == args.length) {
+                args = Arrays.copyOf(args, count * 2);
+            }
+            args[count++] = end < 0 ? data.substring(start) : data.substring(start, end);
+        }
+        return new CallbackData(code, count == args.length ? args : Arrays.copyOf(args, count));
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public boolean is(CallbackAction action) {
+        return code.equals(action.getCode());
+    }
+
+    public int argCount() {
+        return args.length;
+    }
+
+    public String arg(int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("В callback " + code + " нет аргумента #" + index);
+        }
+        return args[index];
+    }
+
+    public long longArg(int index) {
+        return Long.parseLong(arg(index));
+    }
+
+    /**
+     * Enum.valueOf использует кэшированную таблицу имён, поэтому разбор не перебирает values().
+     */
+    public <E extends Enum<E>> E enumArg(int index, Class<E> type) {
+        return Enum.valueOf(type, arg(index));
+    }
+
+    @Override
+    public String toString() {
+        return args.length == 0 ? code : code + Arrays.toString(args);
+    }
+}
@@ -0,0 +1,69 @@
+package prototype.javabot.bot.callback;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Маршрутизатор нажатий inline-кнопок: обработчики регистрируются один раз по коду действия,
+ * нажатие разбирается {@link CallbackData#decode} и находит обработчик одним обращением к таблице,
+ * поэтому стоимость не растёт с числом кнопок. Новая кнопка — новый код и одна регистрация.
+ *
+ * @param <C> контекст нажатия, который получает обработчик
+ */
+public final class CallbackRouter<C> {
+
+    @FunctionalInterface
+    public interface Handler<C> {
+        void handle(C context, CallbackData data) throws Exception;
+    }
+
+    private final Map<String, Handler<C>> handlers;
+
+    private CallbackRouter(Map<String, Handler<C>> handlers) {
+        this.handlers = handlers;
+    }
+
+    public static <C> Builder<C> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return false, если данные не разобраны или для действия нет обработчика
+     * @throws IllegalArgumentException если аргументы кнопки некорректны
+     */
+    public boolean dispatch(C context, String rawData) throws Exception {
+        CallbackData data = CallbackData.decode(rawData);
+        if (data == null) {
+            return false;
+        }
+        Handler<C> handler = handlers.get(data.code());
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(context, data);
+        return true;
+    }
+
+    public static final class Builder<C> {
+
+        private final Map<String, Handler<C>> handlers = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder<C> on(CallbackAction action, Handler<C> handler) {
+            return on(action.getCode(), handler);
+        }
+
+        public Builder<C> on(String code, Handler<C> handler) {
+            if (handlers.putIfAbsent(code, handler) != null) {
+                throw new IllegalStateException("Обработчик для callback " + code + " уже зарегистрирован");
+            }
+            return this;
+        }
+
+        public CallbackRouter<C> build() {
+            return new CallbackRouter<>(Map.copyOf(handlers));
+        }
+    }
+}
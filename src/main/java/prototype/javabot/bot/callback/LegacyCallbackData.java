@@ -0,0 +1,83 @@
+package prototype.javabot.bot.callback;
+
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.CommunicationStyle;
+import prototype.javabot.model.aiSettings.ContentLength;
+import prototype.javabot.model.aiSettings.ResponseLanguage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Разбор callback_data старого формата, которые остались на кнопках уже отправленных сообщений.
+ * Постоянные значения ищутся в готовой таблице, параметризованные — по префиксу из двух слов
+ * ({@code change_status_}, {@code delete_idea_} и т.п.), тоже через таблицу.
+ */
+final class LegacyCallbackData {
+
+    private static final Map<String, CallbackData> EXACT = new HashMap<>();
+    private static final Map<String, CallbackAction> PREFIXES = Map.of(
+            "manage_idea_", CallbackAction.MANAGE_IDEA,
+            "delete_idea_", CallbackAction.DELETE_IDEA,
+            "filter_status_", CallbackAction.FILTER_STATUS,
+            "change_status_", CallbackAction.CHANGE_STATUS);
+
+    static {
+        exact("new_content", CallbackAction.NEW_CONTENT);
+        exact("list_ideas", CallbackAction.LIST_IDEAS);
+        exact("refresh_list", CallbackAction.REFRESH_LIST);
+        exact("settings_menu", CallbackAction.SETTINGS_MENU);
+        exact("settings_language", CallbackAction.SETTINGS_LANGUAGE);
+        exact("settings_length", CallbackAction.SETTINGS_LENGTH);
+        exact("settings_style", CallbackAction.SETTINGS_STYLE);
+        exact("status_management", CallbackAction.STATUS_MANAGEMENT);
+        exact("help", CallbackAction.HELP);
+        exact("back_to_main", CallbackAction.BACK_TO_MAIN);
+        exact("retry_generation", CallbackAction.RETRY_GENERATION);
+        exact("edit_request", CallbackAction.EDIT_REQUEST);
+        for (ContentType type : ContentType.values()) {
+            exact(type.getCallbackData(), CallbackAction.CONTENT_TYPE, type.name());
+        }
+        for (ResponseLanguage language : ResponseLanguage.values()) {
+            exact(language.getCallbackData(), CallbackAction.SET_LANGUAGE, language.name());
+        }
+        for (ContentLength length : ContentLength.values()) {
+            exact(length.getCallbackData(), CallbackAction.SET_LENGTH, length.name());
+        }
+        for (CommunicationStyle style : CommunicationStyle.values()) {
+            exact(style.getCallbackData(), CallbackAction.SET_STYLE, style.name());
+        }
+    }
+
+    private LegacyCallbackData() {
+    }
+
+    static CallbackData decode(String data) {
+        CallbackData exact = EXACT.get(data);
+        if (exact != null) {
+            return exact;
+        }
+        int first = data.indexOf('_');
+        int second = first < 0 ? -1 : data.indexOf('_', first + 1);
+        if (second < 0) {
+            return null;
+        }
+        CallbackAction action = PREFIXES.get(data.substring(0, second + 1));
+        if (action == null) {
+            return null;
+        }
+        String rest = data.substring(second + 1);
+        if (action != CallbackAction.CHANGE_STATUS) {
+            return new CallbackData(action.getCode(), rest);
+        }
+        // change_status_<id>_<STATUS>; у статуса IN_PROGRESS в имени тоже есть '_'
+        int split = rest.indexOf('_');
+        return split < 0
+                ? new CallbackData(action.getCode(), rest)
+                : new CallbackData(action.getCode(), rest.substring(0, split), rest.substring(split + 1));
+    }
+
+    private static void exact(String data, CallbackAction action, String... args) {
+        EXACT.put(data, new CallbackData(action.getCode(), args));
+    }
+}
@@ -0,0 +1,126 @@
+package prototype.javabot.bot.dispatch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Набор однопоточных воркеров с ограниченными очередями.
+ * Задачи с одинаковым ключом всегда попадают в один воркер и выполняются по порядку,
+ * задачи с разными ключами выполняются параллельно.
+ */
+@Slf4j
+public class KeyedSerialExecutor {
+
+    @Getter
+    private final String name;
+
+    private final ThreadPoolExecutor[] workers;
+    private final Timer queueWait;
+    private final Timer execution;
+
+    public KeyedSerialExecutor(String name, int parallelism, int queueCapacity, MeterRegistry meterRegistry) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism должен быть больше 0");
+        }
+        this.name = name;
+        this.workers = new ThreadPoolExecutor[parallelism];
+        this.queueWait = Timer.builder("bot.dispatcher.queue.wait")
+                .description("Время ожидания задачи в очереди воркера")
+                .tag("executor", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.execution = Timer.builder("bot.dispatcher.execution")
+                .description("Время выполнения задачи воркером")
+                .tag("executor", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        for (int i = 0; i < parallelism; i++) {
+            ThreadPoolExecutor worker = new ThreadPoolExecutor(
+                    1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    namedThreadFactory(name + "-" + i),
+                    new ThreadPoolExecutor.AbortPolicy());
+            workers[i] = worker;
+
+            Gauge.builder("bot.dispatcher.queue.depth", worker, w -> w.getQueue().size())
+                    .description("Количество задач, ожидающих выполнения в воркере")
+                    .tag("executor", name)
+                    .tag("worker", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * @return false, если очередь воркера переполнена и задача не принята
+     */
+    public boolean execute(String key, Runnable task) {
+        ThreadPoolExecutor worker = workers[workerIndex(key)];
+        long submittedAt = System.nanoTime();
+        try {
+            worker.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Ошибка в воркере {} для ключа {}: ", name, key, e);
+                } finally {
+                    execution.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int workerIndex(String key) {
+        return Math.floorMod(key.hashCode(), workers.length);
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    public int getQueueDepth(int worker) {
+        return workers[worker].getQueue().size();
+    }
+
+    public void shutdown(Duration timeout) {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (ThreadPoolExecutor worker : workers) {
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !worker.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    worker.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                worker.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Воркеры {} остановлены", name);
+    }
+
+    private static ThreadFactory namedThreadFactory(String threadName) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package prototype.javabot.bot.dispatch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Изолированные полосы выполнения со своими пулами и очередями:
+ * медленная AI-генерация не задерживает меню и сохранение в БД, и наоборот.
+ */
+@AllArgsConstructor
+@Getter
+public enum Lane {
+    /**
+     * Все входящие обновления: команды, кнопки и запуск генерации. Одна полоса сохраняет порядок
+     * обновлений чата, поэтому генерация видит состояние после всех предшествующих нажатий.
+     */
+    INTERACTIVE("interactive"),
+    /**
+     * Доставка результата генерации (ответ, правки потокового сообщения).
+     */
+    AI("ai"),
+    /**
+     * Сохранение сгенерированного контента.
+     */
+    PERSISTENCE("persistence");
+
+    private final String tag;
+}
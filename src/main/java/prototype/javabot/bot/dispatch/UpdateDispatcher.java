@@ -0,0 +1,88 @@
+package prototype.javabot.bot.dispatch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Распределяет задачи бота по полосам ({@link Lane}), а внутри полосы — по воркерам по chatId:
+ * задачи одного чата в одной полосе выполняются строго по порядку, разные чаты — параллельно.
+ * У каждой полосы свой ограниченный пул, поэтому загруженная AI-полоса не тормозит меню.
+ */
+@Slf4j
+@Component
+public class UpdateDispatcher {
+
+    private final Map<Lane, KeyedSerialExecutor> lanes = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> rejectedCounters = new EnumMap<>(Lane.class);
+
+    public UpdateDispatcher(MeterRegistry meterRegistry,
+                            @Value("${telegram.bot.lanes.interactive.parallelism:4}") int interactiveParallelism,
+                            @Value("${telegram.bot.lanes.interactive.queue-capacity:1000}") int interactiveQueueCapacity,
+                            @Value("${telegram.bot.lanes.ai.parallelism:8}") int aiParallelism,
+                            @Value("${telegram.bot.lanes.ai.queue-capacity:1000}") int aiQueueCapacity,
+                            @Value("${telegram.bot.lanes.persistence.parallelism:2}") int persistenceParallelism,
+                            @Value("${telegram.bot.lanes.persistence.queue-capacity:5000}") int persistenceQueueCapacity) {
+        register(Lane.INTERACTIVE, interactiveParallelism, interactiveQueueCapacity, meterRegistry);
+        register(Lane.AI, aiParallelism, aiQueueCapacity, meterRegistry);
+        register(Lane.PERSISTENCE, persistenceParallelism, persistenceQueueCapacity, meterRegistry);
+    }
+
+    public boolean dispatch(Lane lane, String chatId, Runnable task) {
+        KeyedSerialExecutor executor = lanes.get(lane);
+        boolean accepted = executor.execute(chatId, task);
+        if (!accepted) {
+            rejectedCounters.get(lane).increment();
+            log.warn("Очередь воркера {} полосы {} переполнена, задача от {} отброшена",
+                    executor.workerIndex(chatId), lane.getTag(), chatId);
+        }
+        return accepted;
+    }
+
+    /**
+     * Scheduler для publishOn: сигналы одного чата выполняются в воркере его полосы по порядку.
+     * Переполнение очереди приходит в поток как RejectedExecutionException.
+     */
+    public Scheduler scheduler(Lane lane, String chatId) {
+        return Schedulers.fromExecutor(task -> {
+            if (!dispatch(lane, chatId, task)) {
+                throw new RejectedExecutionException("Очередь полосы " + lane.getTag() + " переполнена");
+            }
+        });
+    }
+
+    public int getQueueDepth(Lane lane, int worker) {
+        return lanes.get(lane).getQueueDepth(worker);
+    }
+
+    public int getParallelism(Lane lane) {
+        return lanes.get(lane).getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Сохранение останавливается последним, чтобы успеть записать результаты завершившихся генераций
+        lanes.get(Lane.INTERACTIVE).shutdown(Duration.ofSeconds(5));
+        lanes.get(Lane.AI).shutdown(Duration.ofSeconds(10));
+        lanes.get(Lane.PERSISTENCE).shutdown(Duration.ofSeconds(10));
+    }
+
+    private void register(Lane lane, int parallelism, int queueCapacity, MeterRegistry meterRegistry) {
+        lanes.put(lane, new KeyedSerialExecutor("bot-" + lane.getTag(), parallelism, queueCapacity, meterRegistry));
+        rejectedCounters.put(lane, Counter.builder("bot.dispatcher.rejected")
+                .description("Задачи, отброшенные из-за переполненной очереди")
+                .tag("lane", lane.getTag())
+                .register(meterRegistry));
+        log.info("Полоса {}: {} воркеров, очередь {}", lane.getTag(), parallelism, queueCapacity);
+    }
+}
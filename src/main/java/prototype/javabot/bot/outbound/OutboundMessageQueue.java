@@ -0,0 +1,387 @@
+package prototype.javabot.bot.outbound;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Очередь исходящих запросов к Telegram с учётом лимитов: общий token bucket (~30 сообщений/с)
+ * и bucket на каждый чат (~1 сообщение/с). Ответ 429 ставит чат на паузу на retry_after и запрос повторяется.
+ * <p>
+ * В каждом чате одновременно выполняется не больше одного запроса, поэтому порядок сообщений сохраняется.
+ * Ещё не отправленные правки одного сообщения склеиваются в последнюю, ответы на нажатия кнопок
+ * идут вне лимитов и раньше остальных. Отправка — через executeAsync, вызывающий поток не блокируется.
+ * <p>
+ * Всё состояние очереди меняется только в её единственном потоке, поэтому блокировки не нужны.
+ */
+@Slf4j
+@Component
+public class OutboundMessageQueue {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int BAD_REQUEST = 400;
+    private static final String NOT_MODIFIED_DESCRIPTION = "message is not modified";
+
+    private final ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "telegram-outbound");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Deque<Outbound> callbackAnswers = new ArrayDeque<>();
+    private final Map<String, ChatQueue> chats = new LinkedHashMap<>();
+    private final TokenBucket globalBucket;
+    private final double chatRate;
+    private final int chatBurst;
+    private final int maxPending;
+    private final int maxRetries;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<OutboundPriority, Timer> queueWaitTimers = new EnumMap<>(OutboundPriority.class);
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter throttledCounter;
+    private final Counter coalescedCounter;
+    private final Counter rejectedCounter;
+
+    private volatile AbsSender sender;
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt;
+
+    public OutboundMessageQueue(MeterRegistry meterRegistry,
+                                @Value("${telegram.bot.outbound.global-rate:30}") double globalRate,
+                                @Value("${telegram.bot.outbound.global-burst:30}") int globalBurst,
+                                @Value("${telegram.bot.outbound.chat-rate:1}") double chatRate,
+                                @Value("${telegram.bot.outbound.chat-burst:3}") int chatBurst,
+                                @Value("${telegram.bot.outbound.max-pending:10000}") int maxPending,
+                                @Value("${telegram.bot.outbound.max-retries:3}") int maxRetries) {
+        this.globalBucket = new TokenBucket(globalRate, globalBurst, System.nanoTime());
+        this.chatRate = chatRate;
+        this.chatBurst = chatBurst;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+
+        for (OutboundPriority priority : OutboundPriority.values()) {
+            queueWaitTimers.put(priority, Timer.builder("telegram.outbound.queue.wait")
+                    .description("Время ожидания запроса в очереди отправки")
+                    .tag("priority", priority.getTag())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+        this.sentCounter = Counter.builder("telegram.outbound.sent")
+                .description("Успешно выполненные запросы к Telegram")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("telegram.outbound.failed")
+                .description("Запросы к Telegram, завершившиеся ошибкой")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("telegram.outbound.throttled")
+                .description("Ответы 429, после которых запрос повторён через retry_after")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("telegram.outbound.coalesced")
+                .description("Правки сообщения, склеенные с ещё не отправленной правкой")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("telegram.outbound.rejected")
+                .description("Запросы, отброшенные из-за переполненной очереди")
+                .register(meterRegistry);
+        Gauge.builder("telegram.outbound.pending", pending, AtomicInteger::get)
+                .description("Запросы в очереди отправки и в полёте")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Подключает отправителя; бот вызывает это после создания, так как сам зависит от очереди.
+     */
+    public void start(AbsSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Ставит запрос в очередь чата. Future завершается ответом Telegram; для склеенной правки —
+     * ответом на правку, которая в итоге ушла.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> CompletableFuture<T> submit(String chatId, BotApiMethod<T> method, OutboundPriority priority) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("Очередь отправки переполнена, {} для чата {} отброшен", method.getMethod(), chatId);
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Очередь отправки в Telegram переполнена"));
+        }
+        Outbound item = new Outbound(chatId, method, priority, System.nanoTime());
+        runOnLoop(() -> enqueue(item), item);
+        return (CompletableFuture<T>) item.future;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loop.shutdown();
+        try {
+            if (!loop.awaitTermination(5, TimeUnit.SECONDS)) {
+                loop.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            loop.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (pending.get() > 0) {
+            log.warn("Очередь отправки остановлена, не отправлено запросов: {}", pending.get());
+        }
+    }
+
+    private void enqueue(Outbound item) {
+        if (item.priority == OutboundPriority.CALLBACK_ANSWER) {
+            callbackAnswers.add(item);
+        } else {
+            ChatQueue chat = chats.computeIfAbsent(item.chatId,
+                    id -> new ChatQueue(new TokenBucket(chatRate, chatBurst, System.nanoTime())));
+            Deque<Outbound> queue = chat.queue(item.priority);
+            if (item.method instanceof EditMessageText edit) {
+                Outbound queued = findQueuedEdit(queue, edit);
+                if (queued != null) {
+                    queued.method = edit;
+                    queued.future.whenComplete((result, error) -> {
+                        if (error != null) {
+                            item.future.completeExceptionally(error);
+                        } else {
+                            item.future.complete(result);
+                        }
+                    });
+                    pending.decrementAndGet();
+                    coalescedCounter.increment();
+                    return;
+                }
+            }
+            queue.add(item);
+        }
+        drain();
+    }
+
+    private Outbound findQueuedEdit(Deque<Outbound> queue, EditMessageText edit) {
+        for (Iterator<Outbound> it = queue.descendingIterator(); it.hasNext(); ) {
+            Outbound queued = it.next();
+            if (queued.method instanceof EditMessageText queuedEdit
+                    && Objects.equals(queuedEdit.getMessageId(), edit.getMessageId())
+                    && Objects.equals(queuedEdit.getInlineMessageId(), edit.getInlineMessageId())) {
+                return queued;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Отправляет всё, что разрешают лимиты, и планирует следующий проход на момент появления токена.
+     */
+    private void drain() {
+        long now = System.nanoTime();
+        long nextAttempt = Long.MAX_VALUE;
+
+        long globalPause = globalBucket.pauseNanos(now);
+        if (globalPause > 0) {
+            nextAttempt = globalPause;
+        } else {
+            Outbound answer;
+            while ((answer = callbackAnswers.poll()) != null) {
+                send(answer, null, now);
+            }
+        }
+
+        // Чаты, отправившие сообщение, переносятся в конец, чтобы общий лимит делился по кругу
+        List<Map.Entry<String, ChatQueue>> served = new ArrayList<>();
+        passes:
+        for (OutboundPriority priority : List.of(OutboundPriority.INTERACTIVE, OutboundPriority.BULK)) {
+            for (Iterator<Map.Entry<String, ChatQueue>> it = chats.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, ChatQueue> entry = it.next();
+                ChatQueue chat = entry.getValue();
+                if (chat.isEmpty()) {
+                    if (!chat.inFlight && chat.bucket.isIdle(now)) {
+                        it.remove();
+                    }
+                    continue;
+                }
+                Deque<Outbound> queue = chat.queue(priority);
+                if (chat.inFlight || queue.isEmpty() || priority == OutboundPriority.BULK && !chat.interactive.isEmpty()) {
+                    continue;
+                }
+                long chatDelay = chat.bucket.delayNanos(now);
+                if (chatDelay > 0) {
+                    nextAttempt = Math.min(nextAttempt, chatDelay);
+                    continue;
+                }
+                long globalDelay = globalBucket.delayNanos(now);
+                if (globalDelay > 0) {
+                    nextAttempt = Math.min(nextAttempt, globalDelay);
+                    break passes;
+                }
+                chat.bucket.take();
+                globalBucket.take();
+                send(queue.poll(), chat, now);
+                it.remove();
+                served.add(entry);
+            }
+        }
+        served.forEach(entry -> chats.put(entry.getKey(), entry.getValue()));
+
+        if (nextAttempt != Long.MAX_VALUE) {
+            scheduleWakeup(now, nextAttempt);
+        }
+    }
+
+    private void send(Outbound item, ChatQueue chat, long now) {
+        if (chat != null) {
+            chat.inFlight = true;
+        }
+        if (item.attempts == 0) {
+            queueWaitTimers.get(item.priority).record(now - item.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        CompletableFuture<? extends Serializable> result;
+        try {
+            result = sender.executeAsync(item.method);
+        } catch (TelegramApiException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> runOnLoop(() -> onSent(item, chat, value, error), item));
+    }
+
+    private void onSent(Outbound item, ChatQueue chat, Serializable value, Throwable error) {
+        if (chat != null) {
+            chat.inFlight = false;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TelegramApiRequestException requestException
+                && Objects.equals(requestException.getErrorCode(), TOO_MANY_REQUESTS)
+                && item.attempts < maxRetries) {
+            Duration retryAfter = Duration.ofSeconds(requestException.getParameters() != null
+                    && requestException.getParameters().getRetryAfter() != null
+                    ? requestException.getParameters().getRetryAfter() : 1);
+            item.attempts++;
+            throttledCounter.increment();
+            log.warn("Telegram ограничил отправку в чат {}, повтор через {} с", item.chatId, retryAfter.toSeconds());
+            if (chat != null) {
+                chat.bucket.pause(System.nanoTime(), retryAfter);
+                chat.queue(item.priority).addFirst(item);
+            } else {
+                globalBucket.pause(System.nanoTime(), retryAfter);
+                callbackAnswers.addFirst(item);
+            }
+        } else if (isNotModified(cause)) {
+            // Повторное нажатие «Обновить» с тем же содержимым: для пользователя это не ошибка
+            pending.decrementAndGet();
+            log.debug("Сообщение в чате {} не изменилось, правка пропущена", item.chatId);
+            complete(item, null, null);
+        } else {
+            pending.decrementAndGet();
+            complete(item, value, cause);
+        }
+        drain();
+    }
+
+    private static boolean isNotModified(Throwable error) {
+        return error instanceof TelegramApiRequestException requestException
+                && Objects.equals(requestException.getErrorCode(), BAD_REQUEST)
+                && requestException.getApiResponse() != null
+                && requestException.getApiResponse().contains(NOT_MODIFIED_DESCRIPTION);
+    }
+
+    private void complete(Outbound item, Serializable value, Throwable error) {
+        if (error == null) {
+            sentCounter.increment();
+            item.future.complete(value);
+            return;
+        }
+        failedCounter.increment();
+        log.warn("Не удалось выполнить {} для чата {}: {}", item.method.getMethod(), item.chatId, error.getMessage());
+        item.future.completeExceptionally(error);
+    }
+
+    private void scheduleWakeup(long now, long delayNanos) {
+        long at = now + delayNanos;
+        if (wakeup != null && !wakeup.isDone() && wakeupAt <= at) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        if (!loop.isShutdown()) {
+            wakeup = loop.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+            wakeupAt = at;
+        }
+    }
+
+    private void runOnLoop(Runnable task, Outbound item) {
+        try {
+            loop.execute(task);
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            item.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Outbound {
+        private final String chatId;
+        private final OutboundPriority priority;
+        private final long enqueuedAt;
+        private final CompletableFuture<Serializable> future = new CompletableFuture<>();
+        private BotApiMethod<? extends Serializable> method;
+        private int attempts;
+
+        private Outbound(String chatId, BotApiMethod<? extends Serializable> method, OutboundPriority priority, long enqueuedAt) {
+            this.chatId = chatId;
+            this.method = method;
+            this.priority = priority;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class ChatQueue {
+        private final TokenBucket bucket;
+        private final Deque<Outbound> interactive = new ArrayDeque<>();
+        private final Deque<Outbound> bulk = new ArrayDeque<>();
+        private boolean inFlight;
+
+        private ChatQueue(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        private Deque<Outbound> queue(OutboundPriority priority) {
+            return priority == OutboundPriority.BULK ? bulk : interactive;
+        }
+
+        private boolean isEmpty() {
+            return interactive.isEmpty() && bulk.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package prototype.javabot.bot.outbound;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Приоритет исходящего запроса в {@link OutboundMessageQueue}.
+ */
+@AllArgsConstructor
+@Getter
+public enum OutboundPriority {
+    /**
+     * Ответ на нажатие кнопки: не является сообщением, поэтому не расходует лимиты и уходит первым.
+     */
+    CALLBACK_ANSWER("callback_answer"),
+    /**
+     * Ответы на команды и кнопки меню.
+     */
+    INTERACTIVE("interactive"),
+    /**
+     * Ответы AI и потоковые правки: уступают место интерактивным сообщениям.
+     */
+    BULK("bulk");
+
+    private final String tag;
+}
@@ -0,0 +1,74 @@
+package prototype.javabot.bot.outbound;
+
+import java.time.Duration;
+
+/**
+ * Token bucket на System.nanoTime() с паузой по retry_after.
+ * Не потокобезопасен: используется только из потока {@link OutboundMessageQueue}.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    TokenBucket(double ratePerSecond, int burst, long now) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Скорость и размер пачки должны быть положительными");
+        }
+        this.capacity = burst;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /**
+     * @return через сколько наносекунд появится токен (0 — можно отправлять сейчас)
+     */
+    long delayNanos(long now) {
+        long paused = pauseNanos(now);
+        if (paused > 0) {
+            return paused;
+        }
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    long pauseNanos(long now) {
+        return Math.max(0, pausedUntil - now);
+    }
+
+    void take() {
+        tokens -= 1;
+    }
+
+    /**
+     * Telegram ответил 429: до истечения retry_after отправка запрещена, после — начинаем с одного токена.
+     */
+    void pause(long now, Duration retryAfter) {
+        pausedUntil = Math.max(pausedUntil, now + retryAfter.toNanos());
+        tokens = 1;
+        refilledAt = pausedUntil;
+    }
+
+    /**
+     * Полное ведро без паузы ничем не отличается от нового, его можно забыть.
+     */
+    boolean isIdle(long now) {
+        if (pauseNanos(now) > 0) {
+            return false;
+        }
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package prototype.javabot.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Общий HTTP-клиент для AI-провайдеров: пул соединений reactor-netty с ограничениями и вытеснением простаивающих
+ * соединений, таймауты на каждую фазу запроса и метрики пула (reactor.netty.connection.provider.*).
+ * Зависший сокет завершается по response-timeout, а не держит запрос до общего ai.request-timeout.
+ */
+@Slf4j
+@Configuration
+public class AiHttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider aiConnectionProvider(AiProperties aiProperties) {
+        AiProperties.Http http = aiProperties.getHttp();
+        log.info("Пул соединений к AI: до {} соединений, очередь ожидания {}", http.getMaxConnections(), http.getPendingAcquireMaxCount());
+        return ConnectionProvider.builder("ai")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictInBackground())
+                .metrics(http.isMetrics())
+                .build();
+    }
+
+    @Bean
+    public HttpClient aiHttpClient(ConnectionProvider aiConnectionProvider, AiProperties aiProperties) {
+        AiProperties.Http http = aiProperties.getHttp();
+        HttpClient client = HttpClient.create(aiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(http.getResponseTimeout())
+                // Обработчик добавляется на время запроса и снимается, когда соединение возвращается в пул
+                .doOnRequest((request, connection) -> connection.addHandlerFirst(
+                        new WriteTimeoutHandler(http.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+
+        if (http.isMetrics()) {
+            // Все провайдеры обращаются к /chat/completions, поэтому uri в метках не раздувает кардинальность
+            client = client.metrics(true, Function.identity());
+        }
+        return http.isHttp2() ? client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11) : client;
+    }
+}
@@ -0,0 +1,80 @@
+package prototype.javabot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.ContentLength;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Список AI-провайдеров (ai.providers). Если список пуст, используется один провайдер из openrouter.*.
+ * Уровни моделей (ai.tiers) задают модель и параметры генерации по типу и длине контента.
+ * HTTP-клиент (ai.http) общий для всех провайдеров.
+ * Справедливая очередь генераций между чатами (ai.fair).
+ */
+@Data
+@ConfigurationProperties(prefix = "ai")
+public class AiProperties {
+
+    private List<Provider> providers = new ArrayList<>();
+
+    private List<Tier> tiers = new ArrayList<>();
+
+    private Http http = new Http();
+
+    private Fair fair = new Fair();
+
+    @Data
+    public static class Provider {
+        private String name;
+        private String baseUrl;
+        private String apiKey;
+        private String model;
+    }
+
+    @Data
+    public static class Tier {
+        private String name;
+        private List<ContentType> contentTypes = new ArrayList<>();
+        private List<ContentLength> lengths = new ArrayList<>();
+        private String model;
+        private Map<String, String> providerModels = new HashMap<>();
+        private Integer maxTokens;
+        private Double temperature;
+    }
+
+    @Data
+    public static class Http {
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        /**
+         * Максимальная пауза между чтениями ответа; для SSE — между фрагментами.
+         */
+        private Duration responseTimeout = Duration.ofSeconds(60);
+        private Duration writeTimeout = Duration.ofSeconds(10);
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 200;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private boolean http2 = false;
+        private boolean metrics = true;
+    }
+
+    @Data
+    public static class Fair {
+        private boolean enabled = true;
+        private int maxInFlight = 20;
+        private int perChatMaxInFlight = 2;
+        private int maxQueuedPerChat = 20;
+        /**
+         * Вес чата (chatId → вес), по умолчанию 1. Чат с весом 2 получает вдвое большую долю.
+         */
+        private Map<String, Integer> weights = new HashMap<>();
+    }
+}
@@ -0,0 +1,80 @@
+package prototype.javabot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import prototype.javabot.service.ai.FairGenerationScheduler;
+import prototype.javabot.service.ai.LlmProvider;
+import prototype.javabot.service.ai.LlmRouter;
+import prototype.javabot.service.ai.ModelTier;
+import prototype.javabot.service.ai.ModelTiers;
+import prototype.javabot.service.ai.OpenAiCompatibleProvider;
+import prototype.javabot.service.ai.UpstreamGuardFactory;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+import java.util.Set;
+
+@Configuration
+@EnableConfigurationProperties(AiProperties.class)
+public class AiProviderConfig {
+
+    @Value("${openrouter.base-url:https://openrouter.ai/api/v1}")
+    private String openRouterBaseUrl;
+
+    @Value("${openrouter.api-key}")
+    private String openRouterApiKey;
+
+    @Value("${openrouter.model}")
+    private String openRouterModel;
+
+    @Bean
+    public LlmRouter llmRouter(AiProperties aiProperties, UpstreamGuardFactory guardFactory, MeterRegistry meterRegistry,
+                               HttpClient aiHttpClient) {
+        List<LlmProvider> providers = aiProperties.getProviders().isEmpty()
+                ? List.of(createProvider(aiHttpClient, "openrouter", openRouterBaseUrl, openRouterApiKey, openRouterModel))
+                : aiProperties.getProviders().stream()
+                        .map(p -> createProvider(aiHttpClient, p.getName(), p.getBaseUrl(), p.getApiKey(), p.getModel()))
+                        .toList();
+        return new LlmRouter(providers, guardFactory::create, meterRegistry);
+    }
+
+    @Bean
+    public ModelTiers modelTiers(AiProperties aiProperties, MeterRegistry meterRegistry) {
+        List<ModelTiers.Rule> rules = aiProperties.getTiers().stream()
+                .map(tier -> new ModelTiers.Rule(
+                        Set.copyOf(tier.getContentTypes()),
+                        Set.copyOf(tier.getLengths()),
+                        ModelTier.builder()
+                                .name(tier.getName())
+                                .model(tier.getModel())
+                                .providerModels(tier.getProviderModels())
+                                .maxTokens(tier.getMaxTokens())
+                                .temperature(tier.getTemperature())
+                                .build()))
+                .toList();
+        return new ModelTiers(rules, meterRegistry);
+    }
+
+    @Bean
+    public FairGenerationScheduler fairGenerationScheduler(AiProperties aiProperties, MeterRegistry meterRegistry) {
+        AiProperties.Fair fair = aiProperties.getFair();
+        return new FairGenerationScheduler(meterRegistry, fair.isEnabled(), fair.getMaxInFlight(),
+                fair.getPerChatMaxInFlight(), fair.getMaxQueuedPerChat(), fair.getWeights());
+    }
+
+    private LlmProvider createProvider(HttpClient httpClient, String name, String baseUrl, String apiKey, String model) {
+        // HTTP/2 без TLS (например, локальный сервер) не поддерживается: для http:// остаётся HTTP/1.1
+        HttpClient providerClient = baseUrl.startsWith("https://") ? httpClient : httpClient.protocol(HttpProtocol.HTTP11);
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(providerClient))
+                .baseUrl(baseUrl)
+                .build();
+        return new OpenAiCompatibleProvider(name, webClient, apiKey, model);
+    }
+}
@@ -1,18 +1,38 @@
 package prototype.javabot.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import prototype.javabot.bot.TelegramBot;
 
+/**
+ * Режим получения обновлений задаётся {@code telegram.bot.mode}: {@code polling} (по умолчанию) —
+ * один цикл long polling на процесс, {@code webhook} — обновления приходят на встроенный веб-сервер
+ * ({@link prototype.javabot.controller.TelegramWebhookController}), что позволяет держать несколько инстансов за балансировщиком.
+ */
 @Slf4j
 @Configuration
 public class TelegramBotConfig {
 
+    /**
+     * Пул executeAsync: по умолчанию в библиотеке один поток, и асинхронные отправки шли бы строго по одной.
+     */
     @Bean
+    public DefaultBotOptions telegramBotOptions(@Value("${telegram.bot.outbound.sender-threads:8}") int senderThreads) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setMaxThreads(senderThreads);
+        return options;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "polling", matchIfMissing = true)
     public TelegramBotsApi telegramBotsApi(TelegramBot bot) {
         try {
             TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
@@ -24,4 +44,29 @@ public class TelegramBotConfig {
             throw new RuntimeException("Не удалось зарегистрировать Telegram bot", e);
         }
     }
-}
\ No newline at end of file
+
+    @Bean
+    @ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+    public SetWebhook telegramWebhook(TelegramBot bot,
+                                      @Value("${telegram.bot.webhook.url}") String url,
+                                      @Value("${telegram.bot.webhook.path:/telegram/webhook}") String path,
+                                      @Value("${telegram.bot.webhook.secret-token:}") String secretToken,
+                                      @Value("${telegram.bot.webhook.max-connections:40}") int maxConnections) {
+        if (secretToken.isBlank()) {
+            throw new IllegalStateException("В режиме webhook обязателен telegram.bot.webhook.secret-token");
+        }
+        SetWebhook setWebhook = SetWebhook.builder()
+                .url(url + path)
+                .secretToken(secretToken)
+                .maxConnections(maxConnections)
+                .build();
+        try {
+            bot.execute(setWebhook);
+            log.info("Webhook Telegram bot зарегистрирован: {}", setWebhook.getUrl());
+            return setWebhook;
+        } catch (TelegramApiException e) {
+            log.error("Ошибка при регистрации webhook: ", e);
+            throw new RuntimeException("Не удалось зарегистрировать webhook Telegram bot", e);
+        }
+    }
+}
@@ -1,36 +1,99 @@
 package prototype.javabot.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaPage;
 import prototype.javabot.model.IdeaStatus;
 import prototype.javabot.service.ContentService;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/ideas")
 @RequiredArgsConstructor
 public class ContentController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ContentService contentService;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Страница идей от новых к старым. Следующая страница — с {@code cursor} из ответа; null означает конец списка.
+     */
     @GetMapping
-    public List<ContentIdea> getAll() {
-        return contentService.findAll();
+    public IdeaPage getPage(@RequestParam(required = false) String chatId,
+                            @RequestParam(required = false) IdeaStatus status,
+                            @RequestParam(required = false) String cursor,
+                            @RequestParam(defaultValue = "50") int limit) {
+        return contentService.findPage(chatId, status, cursor, limit);
+    }
+
+    /**
+     * Полная выгрузка в NDJSON (одна идея на строку), потоково из курсора БД.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String chatId,
+                                                        @RequestParam(required = false) IdeaStatus status) {
+        StreamingResponseBody body = out -> {
+            // Без flush после каждой строки: данные уходят клиенту по мере заполнения буфера ответа
+            try (SequenceWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(out)) {
+                contentService.export(chatId, status, idea -> {
+                    try {
+                        writer.write(idea);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @PostMapping
-    public ContentIdea create(@RequestParam String prompt, @RequestParam String response) {
-        return contentService.save(prompt, response);
+    public ContentIdea create(@RequestParam String prompt, @RequestParam String response,
+                              @RequestParam(required = false) String chatId) {
+        return contentService.save(chatId, prompt, response);
     }
 
     @PutMapping("/{id}/status")
-    public ContentIdea updateStatus(@PathVariable Long id, @RequestParam IdeaStatus status) {
-        return contentService.updateStatus(id, status);
+    public ResponseEntity<ContentIdea> updateStatus(@PathVariable Long id, @RequestParam IdeaStatus status) {
+        return contentService.updateStatus(id, status)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Смена статуса у нескольких идей одним UPDATE: {@code PUT /api/ideas/status?ids=1,2,3&status=PUBLISHED}.
+     */
+    @PutMapping("/status")
+    public BulkStatusResult updateStatuses(@RequestParam Set<Long> ids, @RequestParam IdeaStatus status) {
+        return new BulkStatusResult(ids.size(), contentService.updateStatuses(ids, status));
     }
 
     @DeleteMapping("/{id}")
-    public void delete(@PathVariable Long id) {
-        contentService.delete(id);
+    public ResponseEntity<Void> delete(@PathVariable Long id) {
+        return contentService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    public record BulkStatusResult(int requested, int updated) {
     }
 }
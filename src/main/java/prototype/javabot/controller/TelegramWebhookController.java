@@ -0,0 +1,56 @@
+package prototype.javabot.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import prototype.javabot.bot.TelegramBot;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Приём обновлений в режиме webhook. Обработка та же, что и при long polling ({@link TelegramBot#onUpdateReceived}):
+ * обновление только ставится в очередь своей полосы, поэтому Telegram получает 200 сразу.
+ */
+@Slf4j
+@RestController
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = "webhook")
+public class TelegramWebhookController {
+
+    static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final TelegramBot bot;
+    private final byte[] secretToken;
+
+    public TelegramWebhookController(TelegramBot bot,
+                                     @Value("${telegram.bot.webhook.secret-token:}") String secretToken) {
+        if (secretToken.isBlank()) {
+            // Без секрета любой, кто достучится до endpoint, может прислать Update от имени произвольного чата
+            throw new IllegalStateException("В режиме webhook обязателен telegram.bot.webhook.secret-token");
+        }
+        this.bot = bot;
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("${telegram.bot.webhook.path:/telegram/webhook}")
+    public ResponseEntity<Void> onUpdate(@RequestHeader(name = SECRET_TOKEN_HEADER, required = false) String token,
+                                         @RequestBody Update update) {
+        if (!isAuthorized(token)) {
+            log.warn("Обновление {} отклонено: неверный секретный токен webhook", update.getUpdateId());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        bot.onUpdateReceived(update);
+        return ResponseEntity.ok().build();
+    }
+
+    private boolean isAuthorized(String token) {
+        return token != null && MessageDigest.isEqual(secretToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,30 @@
+package prototype.javabot.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import prototype.javabot.model.TokenUsage;
+import prototype.javabot.service.TokenUsageService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/usage")
+@RequiredArgsConstructor
+public class UsageController {
+    private final TokenUsageService tokenUsageService;
+
+    @GetMapping("/{chatId}")
+    public TokenUsageService.ChatUsage getTodayUsage(@PathVariable String chatId) {
+        return tokenUsageService.getTodayUsage(chatId);
+    }
+
+    /**
+     * Сохранённый расход всех чатов за день (по умолчанию — сегодня); данные из памяти попадают сюда после сброса в БД.
+     */
+    @GetMapping
+    public List<TokenUsage> getByDate(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return tokenUsageService.findByDate(date != null ? date : LocalDate.now());
+    }
+}
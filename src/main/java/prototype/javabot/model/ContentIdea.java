@@ -13,12 +13,29 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_content_idea_chat_created", columnList = "chat_id, created_at"),
+        @Index(name = "idx_content_idea_chat_status_created", columnList = "chat_id, status, created_at"),
+        @Index(name = "idx_content_idea_created_id", columnList = "created_at, id")
+})
 public class ContentIdea {
 
+    /**
+     * Id из последовательности с pooled-оптимизатором: Hibernate берёт 50 значений за одно обращение
+     * и может группировать INSERT'ы в JDBC batch, чего не позволяет IDENTITY.
+     * Последовательность и её сдвиг за существующие id — в миграции V4__content_idea_seq.sql.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "content_idea_seq")
+    @SequenceGenerator(name = "content_idea_seq", sequenceName = "content_idea_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Чат-владелец; null у идей, сохранённых до появления колонки или через REST без chatId.
+     */
+    @Column(name = "chat_id")
+    private String chatId;
+
     @Column(columnDefinition = "TEXT")
     private String prompt;
     @Column(columnDefinition = "TEXT")
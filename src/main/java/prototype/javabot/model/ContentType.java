@@ -15,17 +15,4 @@ public enum ContentType {
     private final String callbackData;
     private final String displayName;
     private final String promptTemplate;
-
-    public static ContentType fromCallbackData(String callbackData) {
-        for (ContentType type : values()) {
-            if (type.getCallbackData().equals(callbackData)) {
-                return type;
-            }
-        }
-        return null;
-    }
-
-    public static boolean isContentTypeCallback(String callbackData) {
-        return fromCallbackData(callbackData) != null;
-    }
 }
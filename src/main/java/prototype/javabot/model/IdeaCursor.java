@@ -0,0 +1,38 @@
+package prototype.javabot.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в списке идей, отсортированном по (createdAt, id) от новых к старым.
+ * Клиенту отдаётся непрозрачной строкой base64url.
+ */
+public record IdeaCursor(LocalDateTime createdAt, Long id) {
+
+    public static IdeaCursor after(ContentIdea idea) {
+        return new IdeaCursor(idea.getCreatedAt(), idea.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException если строка не является курсором
+     */
+    public static IdeaCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Некорректный курсор: " + encoded);
+            }
+            return new IdeaCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + encoded, e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package prototype.javabot.model;
+
+import java.util.List;
+
+/**
+ * Страница идей; {@code nextCursor} равен null на последней странице.
+ */
+public record IdeaPage(List<ContentIdea> items, String nextCursor) {
+}
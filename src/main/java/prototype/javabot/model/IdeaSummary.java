@@ -0,0 +1,28 @@
+package prototype.javabot.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Облегчённое представление идеи для списков: без колонок TEXT, с началом промпта, обрезанным в БД.
+ */
+public record IdeaSummary(Long id, IdeaStatus status, LocalDateTime createdAt, String promptPreview) {
+
+    /**
+     * Сколько символов промпта читается из БД: на один больше самого длинного превью, чтобы знать, обрезан ли текст.
+     */
+    public static final int PREVIEW_LENGTH = 51;
+
+    /**
+     * Начало промпта длиной не более {@code maxLength} символов, с многоточием, если текст длиннее.
+     */
+    public String shortPrompt(int maxLength, boolean ellipsis) {
+        if (promptPreview == null) {
+            return "";
+        }
+        if (promptPreview.length() <= maxLength) {
+            return promptPreview;
+        }
+        String cut = promptPreview.substring(0, maxLength);
+        return ellipsis ? cut + "..." : cut;
+    }
+}
@@ -0,0 +1,68 @@
+package prototype.javabot.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Расход токенов чата за день по типу контента (contentType = null — запрос без выбранного типа).
+ * В БД отсутствие типа хранится как {@link #NO_CONTENT_TYPE}: колонка входит в уникальный ключ,
+ * а PostgreSQL не считает два NULL равными.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "token_usage",
+        uniqueConstraints = @UniqueConstraint(name = "uk_token_usage_chat_date_type",
+                columnNames = {"chat_id", "usage_date", "content_type"}),
+        indexes = @Index(name = "idx_token_usage_date", columnList = "usage_date"))
+public class TokenUsage {
+
+    public static final String NO_CONTENT_TYPE = "NONE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private String chatId;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Convert(converter = ContentTypeColumnConverter.class)
+    @Column(name = "content_type", nullable = false)
+    private ContentType contentType;
+
+    private long promptTokens;
+    private long completionTokens;
+    private long requests;
+
+    public long getTotalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    public static String toColumn(ContentType contentType) {
+        return contentType != null ? contentType.name() : NO_CONTENT_TYPE;
+    }
+
+    @Converter
+    public static class ContentTypeColumnConverter implements AttributeConverter<ContentType, String> {
+
+        @Override
+        public String convertToDatabaseColumn(ContentType contentType) {
+            return toColumn(contentType);
+        }
+
+        @Override
+        public ContentType convertToEntityAttribute(String column) {
+            return column == null || NO_CONTENT_TYPE.equals(column) ? null : ContentType.valueOf(column);
+        }
+    }
+}
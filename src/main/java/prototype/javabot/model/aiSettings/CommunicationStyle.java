@@ -13,14 +13,4 @@ public enum CommunicationStyle {
     private final String callbackData;
     private final String displayName;
     private final String instruction;
-
-    public static CommunicationStyle fromCallbackData(String callbackData) {
-        for (CommunicationStyle style : values()) {
-            if (style.getCallbackData().equals(callbackData)) {
-                return style;
-            }
-        }
-        return null;
-    }
-
 }
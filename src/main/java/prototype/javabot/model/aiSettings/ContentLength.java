@@ -13,13 +13,4 @@ public enum ContentLength {
     private final String callbackData;
     private final String displayName;
     private final String instruction;
-
-    public static ContentLength fromCallbackData(String callbackData) {
-        for (ContentLength length : values()) {
-            if (length.getCallbackData().equals(callbackData)) {
-                return length;
-            }
-        }
-        return null;
-    }
 }
@@ -10,19 +10,7 @@ public enum ResponseLanguage {
     ENGLISH("lang_en", "🇺🇸 English", "Answer ONLY in English."),
     UKRAINIAN("lang_ua", "🇺🇦 Українська", "Відповідай ТІЛЬКИ українською мовою.");
 
-
     private final String callbackData;
     private final String displayName;
     private final String instruction;
-
-    public static ResponseLanguage fromCallbackData(String callbackData) {
-        for (ResponseLanguage lang : values()) {
-            if (lang.getCallbackData().equals(callbackData)) {
-                return lang;
-            }
-        }
-        return null;
-    }
-
-
 }
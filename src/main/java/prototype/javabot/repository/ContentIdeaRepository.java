@@ -1,12 +1,79 @@
 package prototype.javabot.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ContentIdeaRepository extends JpaRepository<ContentIdea, Long> {
+public interface ContentIdeaRepository extends JpaRepository<ContentIdea, Long>, JpaSpecificationExecutor<ContentIdea>,
+        ContentIdeaStreamRepository {
 
+    String SUMMARY_SELECT = "select new prototype.javabot.model.IdeaSummary(i.id, i.status, i.createdAt, " +
+            "substring(i.prompt, 1, " + IdeaSummary.PREVIEW_LENGTH + ")) from ContentIdea i ";
 
+    /**
+     * Последние идеи чата: индекс (chat_id, created_at) отдаёт первые строки без сортировки всей таблицы,
+     * а prompt/response целиком не читаются.
+     */
+    @Query(SUMMARY_SELECT + "where i.chatId = :chatId order by i.createdAt desc, i.id desc")
+    List<IdeaSummary> findSummariesByChatId(@Param("chatId") String chatId, Limit limit);
+
+    /**
+     * Последние идеи чата с заданным статусом, по индексу (chat_id, status, created_at).
+     */
+    @Query(SUMMARY_SELECT + "where i.chatId = :chatId and i.status = :status order by i.createdAt desc, i.id desc")
+    List<IdeaSummary> findSummariesByChatIdAndStatus(@Param("chatId") String chatId,
+                                                     @Param("status") IdeaStatus status,
+                                                     Limit limit);
+
+    /**
+     * Карточка идеи, только если она принадлежит чату: чужой id ведёт себя как несуществующий.
+     */
+    @Query(SUMMARY_SELECT + "where i.id = :id and i.chatId = :chatId")
+    Optional<IdeaSummary> findSummaryByIdAndChatId(@Param("id") Long id, @Param("chatId") String chatId);
+
+    /**
+     * Смена статуса одним UPDATE без чтения сущности; возвращает число изменённых строк (0 — идеи нет).
+     * Контекст персистентности очищается, чтобы следующее чтение идеи увидело новый статус.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ContentIdea i set i.status = :status where i.id = :id")
+    int updateStatusById(@Param("id") Long id, @Param("status") IdeaStatus status);
+
+    /**
+     * То же, но только для идеи указанного чата.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ContentIdea i set i.status = :status where i.id = :id and i.chatId = :chatId")
+    int updateStatusByIdAndChatId(@Param("id") Long id, @Param("chatId") String chatId, @Param("status") IdeaStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("update ContentIdea i set i.status = :status where i.id in :ids")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("status") IdeaStatus status);
+
+    /**
+     * Удаление одним DELETE; в отличие от {@link #deleteById}, сущность перед удалением не загружается.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from ContentIdea i where i.id = :id")
+    int deleteIdeaById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ContentIdea i where i.id = :id and i.chatId = :chatId")
+    int deleteIdeaByIdAndChatId(@Param("id") Long id, @Param("chatId") String chatId);
 }
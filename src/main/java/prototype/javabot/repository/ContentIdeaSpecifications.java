@@ -0,0 +1,44 @@
+package prototype.javabot.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaCursor;
+import prototype.javabot.model.IdeaStatus;
+
+/**
+ * Условия выборки идей для страниц и выгрузки REST API. Отсутствующий фильтр не попадает в SQL вовсе,
+ * поэтому планировщик видит конкретный запрос и использует подходящий индекс.
+ */
+public final class ContentIdeaSpecifications {
+
+    private ContentIdeaSpecifications() {
+    }
+
+    public static Specification<ContentIdea> forPage(String chatId, IdeaStatus status, IdeaCursor cursor) {
+        return Specification.allOf(chatIs(chatId), statusIs(status), olderThan(cursor));
+    }
+
+    public static Specification<ContentIdea> forExport(String chatId, IdeaStatus status) {
+        return Specification.allOf(chatIs(chatId), statusIs(status));
+    }
+
+    static Specification<ContentIdea> chatIs(String chatId) {
+        return chatId == null ? null : (root, query, cb) -> cb.equal(root.get("chatId"), chatId);
+    }
+
+    static Specification<ContentIdea> statusIs(IdeaStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    /**
+     * Keyset-условие для сортировки (createdAt desc, id desc): строки строго после курсора.
+     */
+    static Specification<ContentIdea> olderThan(IdeaCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                cb.and(cb.equal(root.get("createdAt"), cursor.createdAt()), cb.lessThan(root.get("id"), cursor.id())));
+    }
+}
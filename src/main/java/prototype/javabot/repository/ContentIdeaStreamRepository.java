@@ -0,0 +1,19 @@
+package prototype.javabot.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import prototype.javabot.model.ContentIdea;
+
+import java.util.stream.Stream;
+
+/**
+ * Потоковое чтение идей по {@link Specification}: то же построение условий, что у страниц API,
+ * но через курсор БД с fetch size и без снимков для dirty checking.
+ */
+public interface ContentIdeaStreamRepository {
+
+    /**
+     * Вызывать внутри транзакции и закрывать поток.
+     */
+    Stream<ContentIdea> streamAll(Specification<ContentIdea> spec, Sort sort);
+}
@@ -0,0 +1,44 @@
+package prototype.javabot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import prototype.javabot.model.TokenUsage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TokenUsageRepository extends JpaRepository<TokenUsage, Long> {
+
+    /**
+     * Атомарно прибавляет расход к строке (чат, день, тип) или создаёт её. Безопасно при нескольких инстансах:
+     * прибавление выполняет сама БД, без чтения и записи значения из Java.
+     *
+     * @param contentType значение колонки, см. {@link TokenUsage#toColumn}
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into token_usage (chat_id, usage_date, content_type, prompt_tokens, completion_tokens, requests) " +
+            "values (:chatId, :usageDate, :contentType, :promptTokens, :completionTokens, :requests) " +
+            "on conflict (chat_id, usage_date, content_type) do update set " +
+            "prompt_tokens = token_usage.prompt_tokens + excluded.prompt_tokens, " +
+            "completion_tokens = token_usage.completion_tokens + excluded.completion_tokens, " +
+            "requests = token_usage.requests + excluded.requests",
+            nativeQuery = true)
+    int addUsage(@Param("chatId") String chatId,
+                 @Param("usageDate") LocalDate usageDate,
+                 @Param("contentType") String contentType,
+                 @Param("promptTokens") long promptTokens,
+                 @Param("completionTokens") long completionTokens,
+                 @Param("requests") long requests);
+
+    List<TokenUsage> findByChatIdAndUsageDate(String chatId, LocalDate usageDate);
+
+    List<TokenUsage> findByUsageDate(LocalDate usageDate);
+
+    @Query("select coalesce(sum(u.promptTokens + u.completionTokens), 0) from TokenUsage u " +
+            "where u.chatId = :chatId and u.usageDate = :usageDate")
+    long sumTokens(@Param("chatId") String chatId, @Param("usageDate") LocalDate usageDate);
+}
@@ -1,37 +1,53 @@
 package prototype.javabot.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.CommunicationStyle;
+import prototype.javabot.model.aiSettings.ContentLength;
+import prototype.javabot.model.aiSettings.ResponseLanguage;
 import prototype.javabot.model.aiSettings.UserAiSetting;
+import prototype.javabot.service.ai.AiResponseException;
+import prototype.javabot.service.ai.ChatCompletion;
+import prototype.javabot.service.ai.ChatCompletionRequest;
+import prototype.javabot.service.ai.CompletionUsage;
+import prototype.javabot.service.ai.FairGenerationScheduler;
+import prototype.javabot.service.ai.GenerationCache;
+import prototype.javabot.service.ai.GenerationKey;
+import prototype.javabot.service.ai.GenerationRequest;
+import prototype.javabot.service.ai.GenerationSingleFlight;
+import prototype.javabot.service.ai.HedgingPolicy;
+import prototype.javabot.service.ai.LlmRouter;
+import prototype.javabot.service.ai.ModelTiers;
+import prototype.javabot.service.ai.VariantBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AiService {
 
-    @Value("${openrouter.api-key}")
-    private String apiKey;
+    private final GenerationCache generationCache;
+    private final GenerationSingleFlight singleFlight;
+    private final HedgingPolicy hedgingPolicy;
+    private final LlmRouter llmRouter;
+    private final ModelTiers modelTiers;
+    private final VariantBuffer variantBuffer;
+    private final TokenUsageService tokenUsageService;
+    private final FairGenerationScheduler fairScheduler;
 
-    @Value("${openrouter.model}")
-    private String model;
-
-    private final WebClient webClient = WebClient.builder()
-            .baseUrl("https://openrouter.ai/api/v1")
-            .build();
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * Системный промпт зависит только от типа контента и настроек, поэтому собирается один раз на комбинацию.
+     */
+    private final Map<SystemPromptKey, String> systemPrompts = new ConcurrentHashMap<>();
 
     public String askAi(String userMessage) {
         return askAiWithContentType(userMessage, null);
@@ -42,58 +58,205 @@ public class AiService {
     }
 
     public String askAiWithSettings(String userMessage, ContentType contentType, UserAiSetting aiSetting) {
-        try {
-
-            String finalPrompt = buildPrompt(userMessage, contentType);
-
-            Map<String, Object> requestBody = Map.of(
-                    "model", model,
-                    "messages", List.of(
-                            Map.of("role", "system", "content", getSystemPrompt(contentType, aiSetting)),
-                            Map.of("role", "user", "content", finalPrompt)
-                    )
-            );
-
-            String jsonResponse = webClient.post()
-                    .uri("/chat/completions")
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(jsonResponse);
-
-            if (root.has("error")) {
-                String errorMessage = root.get("error").get("message").asText();
-                log.error("Ошибка API OpenRouter: {}", errorMessage);
-                return "Извините, произошла ошибка при обращении к AI: " + errorMessage;
-            }
+        return askAiWithSettingsAsync(userMessage, contentType, aiSetting).block();
+    }
+
+    /**
+     * Неблокирующая генерация: HTTP-запрос выполняется на потоках reactor-netty,
+     * поэтому вызывающий поток (например, поток long polling) сразу освобождается.
+     * Ошибки, как и в синхронном варианте, превращаются в текст для пользователя.
+     */
+    public Mono<String> askAiWithSettingsAsync(String userMessage, ContentType contentType, UserAiSetting aiSetting) {
+        return generate(GenerationRequest.of(userMessage, contentType, aiSetting));
+    }
+
+    public Mono<String> generate(GenerationRequest request) {
+        GenerationKey key = GenerationKey.of(request);
 
-            if ((!root.has("choices")) || root.get("choices").isEmpty()) {
-                log.error("Пустой ответ от API OpenRouter");
-                return "Извините получен пустой ответ от AI";
+        if (!request.isFreshVariant()) {
+            String cached = generationCache.get(key);
+            if (cached != null) {
+                log.debug("Ответ для запроса \"{}\" взят из кэша", request.getPrompt());
+                return Mono.just(cached);
             }
+        } else {
+            String prefetched = takePrefetchedVariant(request);
+            if (prefetched != null) {
+                log.debug("Новый вариант для чата {} взят из буфера", request.getChatId());
+                prefetchVariants(request);
+                return Mono.just(prefetched);
+            }
+        }
+
+        // Очередь чата — внутри single-flight: ждёт и занимает долю только чат, запрос которого реально уходит в AI
+        Mono<String> completion = request.isFreshVariant()
+                ? fairScheduler.schedule(request.getChatId(), () -> hedgedCompletion(request))
+                : singleFlight.execute(key, () -> fairScheduler.schedule(request.getChatId(), () -> hedgedCompletion(request)));
 
-            String result = root.at("/choices/0/message/content").asText();
+        return completion
+                .doOnNext(result -> {
+                    generationCache.put(key, result);
+                    prefetchVariants(request);
+                })
+                .onErrorResume(e -> Mono.just(toErrorReply(e)));
+    }
+
+    /**
+     * Потоковая генерация ({@code "stream": true}): возвращает фрагменты текста по мере их получения из SSE.
+     * Ошибки приходят как {@link AiResponseException} с готовым текстом для пользователя.
+     */
+    public Flux<String> streamAiWithSettings(String userMessage, ContentType contentType, UserAiSetting aiSetting) {
+        return generateStream(GenerationRequest.of(userMessage, contentType, aiSetting));
+    }
 
-            if (contentType != null) {
-                String settingsInfo = aiSetting != null ? " с настройками: " + aiSetting.getSettingsSummary() : "";
-                log.info("Сгенерирован контент типа: {} для запроса: {}{}", contentType.getDisplayName(), userMessage, settingsInfo);
+    public Flux<String> generateStream(GenerationRequest request) {
+        GenerationKey key = GenerationKey.of(request);
+
+        if (!request.isFreshVariant()) {
+            String cached = generationCache.get(key);
+            if (cached != null) {
+                return Flux.just(cached);
+            }
+        } else {
+            String prefetched = takePrefetchedVariant(request);
+            if (prefetched != null) {
+                prefetchVariants(request);
+                return Flux.just(prefetched);
             }
+        }
+
+        StringBuilder fullText = new StringBuilder();
+        return fairScheduler.scheduleMany(request.getChatId(), () -> requestCompletionStream(request))
+                .doOnNext(fullText::append)
+                .doOnComplete(() -> {
+                    if (!fullText.isEmpty()) {
+                        generationCache.put(key, fullText.toString());
+                        prefetchVariants(request);
+                    }
+                })
+                .onErrorMap(e -> !(e instanceof AiResponseException), e -> new AiResponseException(toErrorReply(e)));
+    }
+
+    /**
+     * Сбрасывает заранее сгенерированные варианты чата (смена типа контента или настроек).
+     */
+    public void discardPrefetchedVariants(String chatId) {
+        variantBuffer.invalidate(chatId);
+    }
+
+    /**
+     * Выдаёт заранее сгенерированный вариант и только теперь засчитывает его токены в бюджет чата.
+     */
+    private String takePrefetchedVariant(GenerationRequest request) {
+        ChatCompletion variant = variantBuffer.poll(request);
+        if (variant == null) {
+            return null;
+        }
+        tokenUsageService.record(request.getChatId(), request.getContentType(), variant.usage());
+        return variant.content();
+    }
 
-            return result;
-        } catch (WebClientResponseException e) {
-            log.error("HTTP ошибка при обращении к OpenRouter API: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+    /**
+     * Фоновая догенерация вариантов для «Сгенерировать еще раз» с низким приоритетом:
+     * без хеджирования, только пока у провайдеров есть запас по лимиту одновременных запросов
+     * и у чата остаётся дневной бюджет сверх ai.prefetch.budget-reserve.
+     */
+    private void prefetchVariants(GenerationRequest request) {
+        if (!variantBuffer.isEnabled() || request.getChatId() == null) {
+            return;
+        }
+        if (!tokenUsageService.hasBudgetFor(request.getChatId(), variantBuffer.getBudgetReserve())) {
+            log.debug("Предгенерация вариантов для чата {} пропущена: бюджет на исходе", request.getChatId());
+            return;
+        }
+        if (!llmRouter.hasSpareCapacity()) {
+            log.debug("Предгенерация вариантов для чата {} пропущена: провайдеры загружены", request.getChatId());
+            return;
+        }
+        variantBuffer.refill(request, () -> fetchCompletion(request));
+    }
+
+    /**
+     * Хедж берёт отдельный слот планировщика: ai.fair.max-in-flight ограничивает реальные запросы к API,
+     * а не логические генерации.
+     */
+    private Mono<String> hedgedCompletion(GenerationRequest request) {
+        return hedgingPolicy.execute(() -> requestCompletion(request),
+                () -> fairScheduler.scheduleHedge(() -> requestCompletion(request)));
+    }
+
+    private Mono<String> requestCompletion(GenerationRequest request) {
+        ContentType contentType = request.getContentType();
+        UserAiSetting aiSetting = request.getAiSetting();
+
+        return fetchCompletion(request)
+                .doOnNext(completion -> tokenUsageService.record(request.getChatId(), contentType, completion.usage()))
+                .map(ChatCompletion::content)
+                .doOnNext(result -> {
+                    if (contentType != null) {
+                        String settingsInfo = aiSetting != null ? " с настройками: " + aiSetting.getSettingsSummary() : "";
+                        log.info("Сгенерирован контент типа: {} для запроса: {}{}", contentType.getDisplayName(), request.getPrompt(), settingsInfo);
+                    }
+                });
+    }
+
+    /**
+     * Запрос к провайдеру без учёта в бюджете чата: его ведёт вызывающий код.
+     */
+    private Mono<ChatCompletion> fetchCompletion(GenerationRequest request) {
+        ChatCompletionRequest chatRequest = toChatRequest(request);
+
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return llmRouter.complete(chatRequest)
+                    .doOnNext(completion -> modelTiers.recordCompletion(chatRequest.getTier(),
+                            System.nanoTime() - startedAt, completion.usage()));
+        });
+    }
+
+    private Flux<String> requestCompletionStream(GenerationRequest request) {
+        ChatCompletionRequest chatRequest = toChatRequest(request);
+
+        return Flux.defer(() -> {
+            long startedAt = System.nanoTime();
+            AtomicReference<CompletionUsage> usage = new AtomicReference<>();
+            return llmRouter.stream(chatRequest)
+                    .doOnNext(chunk -> {
+                        if (chunk.usage() != null) {
+                            usage.set(chunk.usage());
+                        }
+                    })
+                    .map(ChatCompletion::content)
+                    .filter(delta -> !delta.isEmpty())
+                    .doOnComplete(() -> {
+                        modelTiers.recordCompletion(chatRequest.getTier(), System.nanoTime() - startedAt, usage.get());
+                        tokenUsageService.record(request.getChatId(), request.getContentType(), usage.get());
+                    });
+        });
+    }
+
+    private ChatCompletionRequest toChatRequest(GenerationRequest request) {
+        return ChatCompletionRequest.builder()
+                .systemPrompt(getSystemPrompt(request.getContentType(), request.getAiSetting()))
+                .userPrompt(buildPrompt(request.getPrompt(), request.getContentType()))
+                .tier(modelTiers.resolve(request.getContentType(), request.getAiSetting()))
+                .build();
+    }
+
+    private String toErrorReply(Throwable e) {
+        if (e instanceof AiResponseException aiResponseException) {
+            return aiResponseException.getUserMessage();
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            log.error("HTTP ошибка при обращении к AI API: {} - {}", responseException.getStatusCode(), responseException.getResponseBodyAsString());
             return "Извините, произошла ошибка сети при обращении к AI";
-        } catch (JsonProcessingException e) {
+        }
+        if (e instanceof JsonProcessingException) {
             log.error("Ошибка при обработке JSON: {}", e.getMessage());
             return "Извините, произошла ошибка при обработке ответа AI";
-        } catch (Exception e) {
-            log.error("Неожиданная ошибка при обращении к AI: {}", e.getMessage());
-            return "Извините, произошла неожиданная ошибка";
         }
+        log.error("Неожиданная ошибка при обращении к AI: {}", e.getMessage());
+        return "Извините, произошла неожиданная ошибка";
     }
 
     private String buildPrompt(String userMessage, ContentType contentType) {
@@ -104,6 +267,13 @@ public class AiService {
     }
 
     private String getSystemPrompt(ContentType contentType, UserAiSetting aiSetting) {
+        SystemPromptKey key = aiSetting == null
+                ? new SystemPromptKey(contentType, null, null, null)
+                : new SystemPromptKey(contentType, aiSetting.getLanguage(), aiSetting.getLength(), aiSetting.getStyle());
+        return systemPrompts.computeIfAbsent(key, SystemPromptKey::build);
+    }
+
+    private static String buildSystemPrompt(ContentType contentType, UserAiSetting aiSetting) {
        StringBuilder systemPrompt = new StringBuilder();
 
         if (contentType == null) {
@@ -132,4 +302,15 @@ public class AiService {
         }
         return systemPrompt.toString();
     }
-}
\ No newline at end of file
+
+    private record SystemPromptKey(ContentType contentType,
+                                   ResponseLanguage language,
+                                   ContentLength length,
+                                   CommunicationStyle style) {
+
+        String build() {
+            UserAiSetting setting = language == null ? null : new UserAiSetting(language, length, style);
+            return buildSystemPrompt(contentType, setting);
+        }
+    }
+}
@@ -6,8 +6,11 @@ import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
-import prototype.javabot.model.ContentIdea;
+import prototype.javabot.bot.callback.CallbackAction;
+import prototype.javabot.bot.callback.CallbackData;
+import prototype.javabot.model.ContentType;
 import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
 import prototype.javabot.model.aiSettings.CommunicationStyle;
 import prototype.javabot.model.aiSettings.ContentLength;
 import prototype.javabot.model.aiSettings.ResponseLanguage;
@@ -22,8 +25,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BotCommandService {
 
+    private static final int RECENT_IDEAS_LIMIT = 10;
+
     private final ContentService contentService;
     private final UserStateService userStateService;
+    private final TokenUsageService tokenUsageService;
 
     public SendMessage handleStartCommand(String chatId) {
         String welcomeText = """
@@ -55,6 +61,7 @@ public class BotCommandService {
                                 /list - показать последние идеи
                                 /new - создать новую идею
                                 /settings - настройка AI
+                                /usage - расход токенов за сегодня
                 
                                 🎯 Типы контента:
                                 • Посты для соцсетей
@@ -73,9 +80,9 @@ public class BotCommandService {
     }
 
     public SendMessage handleListCommand(String chatId) {
-        List<ContentIdea> ideas = contentService.findAll();
+        List<IdeaSummary> recentIdeas = contentService.findRecent(chatId, RECENT_IDEAS_LIMIT);
 
-        if (ideas.isEmpty()) {
+        if (recentIdeas.isEmpty()) {
             return SendMessage.builder()
                     .chatId(chatId)
                     .text("\uD83D\uDCDD У вас пока нет сохраненных идей. Создайте первую!")
@@ -86,24 +93,18 @@ public class BotCommandService {
         StringBuilder messageText = new StringBuilder("\uD83D\uDCCB Ваши последние идеи:\n\n");
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
 
-        List<ContentIdea> recentIdeas = ideas.stream()
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                .limit(10)
-                .toList();
         recentIdeas.forEach(idea -> {
-            String statusEmoji = getStatusEmoji(idea.getStatus());
-            String shortPrompt = idea.getPrompt().length() > 50
-                    ? idea.getPrompt().substring(0, 50) + "..."
-                    : idea.getPrompt();
+            String statusEmoji = getStatusEmoji(idea.status());
+            String shortPrompt = idea.shortPrompt(50, true);
 
             messageText.append(String.format(
                     "%s ID: %d\n" +
                             "📝 %s\n" +
                             "🕒 %s\n\n",
                     statusEmoji,
-                    idea.getId(),
+                    idea.id(),
                     shortPrompt,
-                    idea.getCreatedAt().format(formatter)
+                    idea.createdAt().format(formatter)
             ));
         });
 
@@ -185,14 +186,37 @@ public class BotCommandService {
                 .build();
     }
 
-    public SendMessage handleFilteredListCommand(String chatId, IdeaStatus status) {
-        List<ContentIdea> ideas = contentService.findAll();
+    public SendMessage handleUsageCommand(String chatId) {
+        TokenUsageService.ChatUsage usage = tokenUsageService.getTodayUsage(chatId);
+
+        StringBuilder text = new StringBuilder("📈 Расход AI за сегодня\n\n");
+        text.append("Генераций: ").append(usage.requests()).append("\n");
+        text.append("Токенов: ").append(usage.totalTokens())
+                .append(" (запрос: ").append(usage.promptTokens())
+                .append(", ответ: ").append(usage.completionTokens()).append(")\n");
+
+        if (!usage.tokensByType().isEmpty()) {
+            text.append("\nПо типам контента:\n");
+            usage.tokensByType().forEach((type, tokens) ->
+                    text.append("• ").append(type.getDisplayName()).append(": ").append(tokens).append("\n"));
+        }
+
+        if (usage.dailyTokenBudget() > 0) {
+            long left = Math.max(0, usage.dailyTokenBudget() - usage.totalTokens());
+            text.append("\nДневной лимит: ").append(usage.dailyTokenBudget())
+                    .append(", осталось: ").append(left);
+        } else {
+            text.append("\nДневной лимит: без ограничений");
+        }
 
-        List<ContentIdea> filteredIdeas = ideas.stream()
-                .filter(idea -> idea.getStatus() == status)
-                .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                .limit(10)
-                .toList();
+        return SendMessage.builder()
+                .chatId(chatId)
+                .text(text.toString())
+                .build();
+    }
+
+    public SendMessage handleFilteredListCommand(String chatId, IdeaStatus status) {
+        List<IdeaSummary> filteredIdeas = contentService.findRecentByStatus(chatId, status, RECENT_IDEAS_LIMIT);
 
         if (filteredIdeas.isEmpty()) {
             String statusName = getStatusName(status);
@@ -209,19 +233,17 @@ public class BotCommandService {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yy HH:mm");
 
         filteredIdeas.forEach(idea -> {
-            String statusEmoji = getStatusEmoji(idea.getStatus());
-            String shortPrompt = idea.getPrompt().length() > 50
-                    ? idea.getPrompt().substring(0, 50) + "..."
-                    : idea.getPrompt();
+            String statusEmoji = getStatusEmoji(idea.status());
+            String shortPrompt = idea.shortPrompt(50, true);
 
             messageText.append(String.format(
                     "%s ID: %d\n" +
                             "📝 %s\n" +
                             "🕒 %s\n\n",
                     statusEmoji,
-                    idea.getId(),
+                    idea.id(),
                     shortPrompt,
-                    idea.getCreatedAt().format(formatter)
+                    idea.createdAt().format(formatter)
             ));
         });
         return SendMessage.builder()
@@ -233,7 +255,7 @@ public class BotCommandService {
     }
 
     public SendMessage handleChangeIdeaStatusCommand(String chatId, Long ideaId) {
-        ContentIdea idea = contentService.findById(ideaId);
+        IdeaSummary idea = contentService.findSummaryById(chatId, ideaId);
 
         if (idea == null) {
             return SendMessage.builder()
@@ -243,19 +265,17 @@ public class BotCommandService {
                     .build();
         }
 
-        String shortPrompt = idea.getPrompt().length() > 50
-                ? idea.getPrompt().substring(0, 50) + "..."
-                : idea.getPrompt();
+        String shortPrompt = idea.shortPrompt(50, true);
 
         String text = String.format(
                 "📝 Изменение статуса идеи #%d\n\n" +
                         "Текст: %s\n\n" +
                         "Текущий статус: %s %s\n\n" +
                         "Выберите новый статус:",
-                idea.getId(),
+                idea.id(),
                 shortPrompt,
-                getStatusEmoji(idea.getStatus()),
-                getStatusName(idea.getStatus())
+                getStatusEmoji(idea.status()),
+                getStatusName(idea.status())
         );
         return SendMessage.builder()
                 .chatId(chatId)
@@ -264,25 +284,23 @@ public class BotCommandService {
                 .build();
     }
 
-    private InlineKeyboardMarkup createIdeaManagementKeyboard(List<ContentIdea> ideas) {
+    private InlineKeyboardMarkup createIdeaManagementKeyboard(List<IdeaSummary> ideas) {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         ideas.stream().limit(5).forEach(idea -> {
             List<InlineKeyboardButton> row = new ArrayList<>();
-            String shortText = idea.getPrompt().length() > 20
-                    ? idea.getPrompt().substring(0, 20)
-                    : idea.getPrompt();
+            String shortText = idea.shortPrompt(20, false);
 
             row.add(createInLineButton(
-                    String.format("✏️ #%d: %s", idea.getId(), shortText),
-                    "manage_idea_" + idea.getId()
+                    String.format("✏️ #%d: %s", idea.id(), shortText),
+                    CallbackData.encode(CallbackAction.MANAGE_IDEA, idea.id())
             ));
             keyboard.add(row);
         });
 
         List<InlineKeyboardButton> navRow = new ArrayList<>();
-        navRow.add(createInLineButton("📊 К управлению статусами", "status_management"));
-        navRow.add(createInLineButton("🔙 Главное меню", "back_to_main"));
+        navRow.add(createInLineButton("📊 К управлению статусами", CallbackData.encode(CallbackAction.STATUS_MANAGEMENT)));
+        navRow.add(createInLineButton("🔙 Главное меню", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
         keyboard.add(navRow);
 
         return InlineKeyboardMarkup.builder().keyboard(keyboard).build();
@@ -292,11 +310,11 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton("🔄 Сгенерировать еще раз", "retry_generation"));
-        row1.add(createInLineButton("✏️ Изменить запрос", "edit_request"));
+        row1.add(createInLineButton("🔄 Сгенерировать еще раз", CallbackData.encode(CallbackAction.RETRY_GENERATION)));
+        row1.add(createInLineButton("✏️ Изменить запрос", CallbackData.encode(CallbackAction.EDIT_REQUEST)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton("🔙 Главное меню", "back_to_main"));
+        row2.add(createInLineButton("🔙 Главное меню", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -310,12 +328,12 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton("📝 Новая идея", "new_content"));
-        row1.add(createInLineButton("📋 Мои идеи", "list_ideas"));
+        row1.add(createInLineButton("📝 Новая идея", CallbackData.encode(CallbackAction.NEW_CONTENT)));
+        row1.add(createInLineButton("📋 Мои идеи", CallbackData.encode(CallbackAction.LIST_IDEAS)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton("⚙️ Настройки", "settings_menu"));
-        row2.add(createInLineButton("❓ Помощь", "help"));
+        row2.add(createInLineButton("⚙️ Настройки", CallbackData.encode(CallbackAction.SETTINGS_MENU)));
+        row2.add(createInLineButton("❓ Помощь", CallbackData.encode(CallbackAction.HELP)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -327,16 +345,16 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton("📱 Пост", "content_post"));
-        row1.add(createInLineButton("🎬 Reels", "content_reel"));
+        row1.add(createInLineButton("📱 Пост", CallbackData.encode(CallbackAction.CONTENT_TYPE, ContentType.POST)));
+        row1.add(createInLineButton("🎬 Reels", CallbackData.encode(CallbackAction.CONTENT_TYPE, ContentType.REEL)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton("📖 Story", "content_story"));
-        row2.add(createInLineButton("#️⃣ Хештеги", "content_hashtags"));
+        row2.add(createInLineButton("📖 Story", CallbackData.encode(CallbackAction.CONTENT_TYPE, ContentType.STORY)));
+        row2.add(createInLineButton("#️⃣ Хештеги", CallbackData.encode(CallbackAction.CONTENT_TYPE, ContentType.HASHTAGS)));
 
         List<InlineKeyboardButton> row3 = new ArrayList<>();
-        row3.add(createInLineButton("📰 Заголовок", "content_title"));
-        row3.add(createInLineButton("🔙 Назад", "back_to_main"));
+        row3.add(createInLineButton("📰 Заголовок", CallbackData.encode(CallbackAction.CONTENT_TYPE, ContentType.TITLE)));
+        row3.add(createInLineButton("🔙 Назад", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -349,8 +367,8 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row = new ArrayList<>();
-        row.add(createInLineButton("🔄 Обновить", "refresh_list"));
-        row.add(createInLineButton("🔙 Главное меню", "back_to_main"));
+        row.add(createInLineButton("🔄 Обновить", CallbackData.encode(CallbackAction.REFRESH_LIST)));
+        row.add(createInLineButton("🔙 Главное меню", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
 
         keyboard.add(row);
 
@@ -361,12 +379,12 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton("🌍 Язык", "settings_language"));
-        row1.add(createInLineButton("📏 Длина", "settings_length"));
+        row1.add(createInLineButton("🌍 Язык", CallbackData.encode(CallbackAction.SETTINGS_LANGUAGE)));
+        row1.add(createInLineButton("📏 Длина", CallbackData.encode(CallbackAction.SETTINGS_LENGTH)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton("🎭 Стиль", "settings_style"));
-        row2.add(createInLineButton("🔙 Назад", "back_to_main"));
+        row2.add(createInLineButton("🎭 Стиль", CallbackData.encode(CallbackAction.SETTINGS_STYLE)));
+        row2.add(createInLineButton("🔙 Назад", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -378,16 +396,16 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton(ResponseLanguage.RUSSIAN.getDisplayName(), ResponseLanguage.RUSSIAN.getCallbackData()));
+        row1.add(createInLineButton(ResponseLanguage.RUSSIAN.getDisplayName(), CallbackData.encode(CallbackAction.SET_LANGUAGE, ResponseLanguage.RUSSIAN)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton(ResponseLanguage.ENGLISH.getDisplayName(), ResponseLanguage.ENGLISH.getCallbackData()));
+        row2.add(createInLineButton(ResponseLanguage.ENGLISH.getDisplayName(), CallbackData.encode(CallbackAction.SET_LANGUAGE, ResponseLanguage.ENGLISH)));
 
         List<InlineKeyboardButton> row3 = new ArrayList<>();
-        row3.add(createInLineButton(ResponseLanguage.UKRAINIAN.getDisplayName(), ResponseLanguage.UKRAINIAN.getCallbackData()));
+        row3.add(createInLineButton(ResponseLanguage.UKRAINIAN.getDisplayName(), CallbackData.encode(CallbackAction.SET_LANGUAGE, ResponseLanguage.UKRAINIAN)));
 
         List<InlineKeyboardButton> row4 = new ArrayList<>();
-        row4.add(createInLineButton("🔙 К настройкам", "settings_menu"));
+        row4.add(createInLineButton("🔙 К настройкам", CallbackData.encode(CallbackAction.SETTINGS_MENU)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -401,12 +419,12 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton(ContentLength.SHORT.getDisplayName(), ContentLength.SHORT.getCallbackData()));
-        row1.add(createInLineButton(ContentLength.MEDIUM.getDisplayName(), ContentLength.MEDIUM.getCallbackData()));
+        row1.add(createInLineButton(ContentLength.SHORT.getDisplayName(), CallbackData.encode(CallbackAction.SET_LENGTH, ContentLength.SHORT)));
+        row1.add(createInLineButton(ContentLength.MEDIUM.getDisplayName(), CallbackData.encode(CallbackAction.SET_LENGTH, ContentLength.MEDIUM)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton(ContentLength.LONG.getDisplayName(), ContentLength.LONG.getCallbackData()));
-        row2.add(createInLineButton("🔙 К настройкам", "settings_menu"));
+        row2.add(createInLineButton(ContentLength.LONG.getDisplayName(), CallbackData.encode(CallbackAction.SET_LENGTH, ContentLength.LONG)));
+        row2.add(createInLineButton("🔙 К настройкам", CallbackData.encode(CallbackAction.SETTINGS_MENU)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -418,16 +436,16 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton(CommunicationStyle.FRIENDLY.getDisplayName(), CommunicationStyle.FRIENDLY.getCallbackData()));
+        row1.add(createInLineButton(CommunicationStyle.FRIENDLY.getDisplayName(), CallbackData.encode(CallbackAction.SET_STYLE, CommunicationStyle.FRIENDLY)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton(CommunicationStyle.BUSINESS.getDisplayName(), CommunicationStyle.BUSINESS.getCallbackData()));
+        row2.add(createInLineButton(CommunicationStyle.BUSINESS.getDisplayName(), CallbackData.encode(CallbackAction.SET_STYLE, CommunicationStyle.BUSINESS)));
 
         List<InlineKeyboardButton> row3 = new ArrayList<>();
-        row3.add(createInLineButton(CommunicationStyle.EMOTIONAL.getDisplayName(), CommunicationStyle.EMOTIONAL.getCallbackData()));
+        row3.add(createInLineButton(CommunicationStyle.EMOTIONAL.getDisplayName(), CallbackData.encode(CallbackAction.SET_STYLE, CommunicationStyle.EMOTIONAL)));
 
         List<InlineKeyboardButton> row4 = new ArrayList<>();
-        row4.add(createInLineButton("🔙 К настройкам", "settings_menu"));
+        row4.add(createInLineButton("🔙 К настройкам", CallbackData.encode(CallbackAction.SETTINGS_MENU)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -441,15 +459,15 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton("📝 Черновики", "filter_status_DRAFT"));
-        row1.add(createInLineButton("⏳ В работе", "filter_status_IN_PROGRESS"));
+        row1.add(createInLineButton("📝 Черновики", CallbackData.encode(CallbackAction.FILTER_STATUS, IdeaStatus.DRAFT)));
+        row1.add(createInLineButton("⏳ В работе", CallbackData.encode(CallbackAction.FILTER_STATUS, IdeaStatus.IN_PROGRESS)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton("✅ Опубликованные", "filter_status_PUBLISHED"));
-        row2.add(createInLineButton("📋 Все идеи", "list_ideas"));
+        row2.add(createInLineButton("✅ Опубликованные", CallbackData.encode(CallbackAction.FILTER_STATUS, IdeaStatus.PUBLISHED)));
+        row2.add(createInLineButton("📋 Все идеи", CallbackData.encode(CallbackAction.LIST_IDEAS)));
 
         List<InlineKeyboardButton> row3 = new ArrayList<>();
-        row3.add(createInLineButton("🔙 Главное меню", "back_to_main"));
+        row3.add(createInLineButton("🔙 Главное меню", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -462,8 +480,8 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row = new ArrayList<>();
-        row.add(createInLineButton("📊 Управление статусами", "status_management"));
-        row.add(createInLineButton("🔙 Главное меню", "back_to_main"));
+        row.add(createInLineButton("📊 Управление статусами", CallbackData.encode(CallbackAction.STATUS_MANAGEMENT)));
+        row.add(createInLineButton("🔙 Главное меню", CallbackData.encode(CallbackAction.BACK_TO_MAIN)));
 
         keyboard.add(row);
 
@@ -474,15 +492,15 @@ public class BotCommandService {
         List<List<InlineKeyboardButton>> keyboard = new ArrayList<>();
 
         List<InlineKeyboardButton> row1 = new ArrayList<>();
-        row1.add(createInLineButton("📝 Черновик", "change_status_" + ideaId + "_DRAFT"));
-        row1.add(createInLineButton("⏳ В работе", "change_status_" + ideaId + "_IN_PROGRESS"));
+        row1.add(createInLineButton("📝 Черновик", CallbackData.encode(CallbackAction.CHANGE_STATUS, ideaId, IdeaStatus.DRAFT)));
+        row1.add(createInLineButton("⏳ В работе", CallbackData.encode(CallbackAction.CHANGE_STATUS, ideaId, IdeaStatus.IN_PROGRESS)));
 
         List<InlineKeyboardButton> row2 = new ArrayList<>();
-        row2.add(createInLineButton("✅ Опубликовано", "change_status_" + ideaId + "_PUBLISHED"));
-        row2.add(createInLineButton("🗑️ Удалить", "delete_idea_" + ideaId));
+        row2.add(createInLineButton("✅ Опубликовано", CallbackData.encode(CallbackAction.CHANGE_STATUS, ideaId, IdeaStatus.PUBLISHED)));
+        row2.add(createInLineButton("🗑️ Удалить", CallbackData.encode(CallbackAction.DELETE_IDEA, ideaId)));
 
         List<InlineKeyboardButton> row3 = new ArrayList<>();
-        row3.add(createInLineButton("🔙 К управлению", "status_management"));
+        row3.add(createInLineButton("🔙 К управлению", CallbackData.encode(CallbackAction.STATUS_MANAGEMENT)));
 
         keyboard.add(row1);
         keyboard.add(row2);
@@ -1,34 +1,61 @@
 package prototype.javabot.service;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaCursor;
+import prototype.javabot.model.IdeaPage;
 import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
 import prototype.javabot.repository.ContentIdeaRepository;
+import prototype.javabot.repository.ContentIdeaSpecifications;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ContentService {
 
+    /**
+     * Предел размера страницы REST API: страница целиком держится в памяти вместе с TEXT-колонками.
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
     private final ContentIdeaRepository repository;
+    private final EntityManager entityManager;
+    private final IdeaCache ideaCache;
+
+    public ContentIdea save(String chatId, String prompt, String response) {
+        return save(newIdea(chatId, prompt, response));
+    }
 
-    public ContentIdea save(String prompt, String response) {
+    /**
+     * Сохраняет идею новой строкой с её собственными статусом и createdAt: идея из отложенной записи
+     * остаётся на своём месте в порядке (createdAt, id), а не получает время повторной попытки.
+     */
+    public ContentIdea save(ContentIdea idea) {
+        String chatId = idea.getChatId();
+        String prompt = idea.getPrompt();
+        String response = idea.getResponse();
         try {
-            ContentIdea idea = ContentIdea.builder()
-                    .prompt(prompt)
-                    .response(response)
-                    .status(IdeaStatus.DRAFT)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-
-            ContentIdea savedIdea = repository.save(idea);
+            ContentIdea savedIdea = repository.save(copyOf(idea, prompt, response));
+            ideaCache.invalidateChat(chatId);
             log.info("Контент сохранен с ID: {}", savedIdea.getId());
             return savedIdea;
 
@@ -40,14 +67,8 @@ public class ContentService {
                 String truncatedPrompt = prompt.length() > 4000 ? prompt.substring(0, 4000) + "..." : prompt;
                 String truncatedResponse = response.length() > 9000 ? response.substring(0, 9000) + "..." : response;
 
-                ContentIdea idea = ContentIdea.builder()
-                        .prompt(truncatedPrompt)
-                        .response(truncatedResponse)
-                        .status(IdeaStatus.DRAFT)
-                        .createdAt(LocalDateTime.now())
-                        .build();
-
-                ContentIdea savedIdea = repository.save(idea);
+                ContentIdea savedIdea = repository.save(copyOf(idea, truncatedPrompt, truncatedResponse));
+                ideaCache.invalidateChat(chatId);
                 log.warn("Контент сохранен с обрезанным текстом, ID: {}", savedIdea.getId());
                 return savedIdea;
 
@@ -58,23 +79,155 @@ public class ContentService {
         }
     }
 
-    public List<ContentIdea> findAll() {
-        return repository.findAll();
+    /**
+     * Сохраняет пачку одной транзакцией; с id из последовательности Hibernate отправляет INSERT'ы JDBC batch'ем.
+     */
+    public List<ContentIdea> saveAll(List<ContentIdea> ideas) {
+        List<ContentIdea> saved = repository.saveAll(ideas);
+        ideas.stream().map(ContentIdea::getChatId).distinct().forEach(ideaCache::invalidateChat);
+        return saved;
+    }
+
+    static ContentIdea newIdea(String chatId, String prompt, String response) {
+        return ContentIdea.builder()
+                .chatId(chatId)
+                .prompt(prompt)
+                .response(response)
+                .status(IdeaStatus.DRAFT)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Копия без id: у идеи из откатившейся пачки мог остаться id, выданный последовательностью.
+     */
+    private static ContentIdea copyOf(ContentIdea idea, String prompt, String response) {
+        return ContentIdea.builder()
+                .chatId(idea.getChatId())
+                .prompt(prompt)
+                .response(response)
+                .status(idea.getStatus())
+                .createdAt(idea.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Keyset-пагинация по (createdAt, id) от новых к старым: следующая страница начинается строго после курсора,
+     * поэтому стоимость запроса не растёт с номером страницы, как у OFFSET.
+     */
+    public IdeaPage findPage(String chatId, IdeaStatus status, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        IdeaCursor after = cursor != null ? IdeaCursor.decode(cursor) : null;
+
+        // Берём на одну строку больше, чтобы без COUNT понять, есть ли следующая страница
+        List<ContentIdea> rows = repository.findBy(ContentIdeaSpecifications.forPage(chatId, status, after),
+                query -> query.sortBy(NEWEST_FIRST).limit(pageSize + 1).all());
+        if (rows.size() <= pageSize) {
+            return new IdeaPage(rows, null);
+        }
+        List<ContentIdea> items = rows.subList(0, pageSize);
+        return new IdeaPage(items, IdeaCursor.after(items.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * Выгрузка идей через курсор БД: каждая строка передаётся в {@code sink} и сразу отсоединяется
+     * от контекста персистентности, так что память не зависит от размера таблицы.
+     *
+     * @return число выгруженных идей
+     */
+    @Transactional(readOnly = true)
+    public long export(String chatId, IdeaStatus status, Consumer<ContentIdea> sink) {
+        long count = 0;
+        Specification<ContentIdea> filter = ContentIdeaSpecifications.forExport(chatId, status);
+        try (Stream<ContentIdea> ideas = repository.streamAll(filter, NEWEST_FIRST)) {
+            Iterator<ContentIdea> iterator = ideas.iterator();
+            while (iterator.hasNext()) {
+                ContentIdea idea = iterator.next();
+                sink.accept(idea);
+                entityManager.detach(idea);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Последние {@code limit} идей чата, выборка и сортировка — в БД по индексу; повторные запросы — из {@link IdeaCache}.
+     */
+    public List<IdeaSummary> findRecent(String chatId, int limit) {
+        return ideaCache.getList(chatId, null, limit,
+                () -> repository.findSummariesByChatId(chatId, Limit.of(limit)));
+    }
+
+    public List<IdeaSummary> findRecentByStatus(String chatId, IdeaStatus status, int limit) {
+        return ideaCache.getList(chatId, status, limit,
+                () -> repository.findSummariesByChatIdAndStatus(chatId, status, Limit.of(limit)));
+    }
+
+    /**
+     * Карточка идеи чата; идея другого чата не находится.
+     */
+    public IdeaSummary findSummaryById(String chatId, Long ideaId) {
+        return ideaCache.getSummary(chatId, ideaId,
+                () -> repository.findSummaryByIdAndChatId(ideaId, chatId).orElse(null));
+    }
+
+
+    /**
+     * @return false, если идеи с таким id нет
+     */
+    public boolean delete(Long id) {
+        boolean deleted = repository.deleteIdeaById(id) > 0;
+        if (deleted) {
+            ideaCache.invalidateIdeas(List.of(id));
+        }
+        return deleted;
     }
 
-    public ContentIdea findById(Long ideaId) {
-        return repository.findById(ideaId).orElse(null);
+    /**
+     * Удаляет идею, только если она принадлежит чату.
+     */
+    public boolean delete(String chatId, Long id) {
+        boolean deleted = repository.deleteIdeaByIdAndChatId(id, chatId) > 0;
+        if (deleted) {
+            ideaCache.invalidate(chatId, id);
+        }
+        return deleted;
     }
 
+    /**
+     * Меняет статус одним UPDATE и возвращает обновлённую идею; пусто, если идеи с таким id нет.
+     */
+    public Optional<ContentIdea> updateStatus(Long id, IdeaStatus newStatus) {
+        if (repository.updateStatusById(id, newStatus) == 0) {
+            return Optional.empty();
+        }
+        ideaCache.invalidateIdeas(List.of(id));
+        return repository.findById(id);
+    }
 
-    public void delete(Long id) {
-        repository.deleteById(id);
+    /**
+     * Меняет статус, только если идея принадлежит чату.
+     */
+    public boolean updateStatus(String chatId, Long id, IdeaStatus newStatus) {
+        boolean updated = repository.updateStatusByIdAndChatId(id, chatId, newStatus) > 0;
+        if (updated) {
+            ideaCache.invalidate(chatId, id);
+        }
+        return updated;
     }
 
-    public ContentIdea updateStatus(Long id, IdeaStatus newStatus) {
-        ContentIdea idea = repository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Идея не найдена"));
-        idea.setStatus(newStatus);
-        return repository.save(idea);
+    /**
+     * Меняет статус сразу у нескольких идей одним запросом; возвращает число изменённых.
+     */
+    public int updateStatuses(Collection<Long> ids, IdeaStatus newStatus) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int updated = repository.updateStatusByIdIn(ids, newStatus);
+        if (updated > 0) {
+            ideaCache.invalidateIdeas(ids);
+        }
+        return updated;
     }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package prototype.javabot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import prototype.javabot.model.ContentIdea;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись сгенерированного контента: идеи складываются в ограниченную очередь,
+ * а отдельный поток сохраняет их пачками (JDBC batch) — по batch-size штук или раз в flush-interval.
+ * При остановке приложения очередь дописывается до конца.
+ */
+@Slf4j
+@Service
+public class ContentWriteBehind {
+
+    private final ContentService contentService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<ContentIdea> queue;
+    private Thread flusher;
+
+    private final Timer flushTimer;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running = true;
+
+    public ContentWriteBehind(ContentService contentService,
+                              MeterRegistry meterRegistry,
+                              @Value("${content.write-behind.enabled:true}") boolean enabled,
+                              @Value("${content.write-behind.capacity:5000}") int capacity,
+                              @Value("${content.write-behind.batch-size:50}") int batchSize,
+                              @Value("${content.write-behind.flush-interval:1s}") Duration flushInterval) {
+        this.contentService = contentService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("content.write_behind.pending", queue, BlockingQueue::size)
+                .description("Идеи, ожидающие записи в БД")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("content.write_behind.flush")
+                .description("Время записи одной пачки идей")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("content.write_behind.rejected")
+                .description("Идеи, не принятые в переполненную очередь")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("content.write_behind.failed")
+                .description("Идеи, которые не удалось сохранить")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Поток записи стартует после полной инициализации бина, а не из конструктора.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        flusher = new Thread(this::runFlushLoop, "content-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Ставит идею в очередь на запись. false — очередь выключена, остановлена или переполнена,
+     * и сохранять нужно синхронно.
+     */
+    public boolean enqueue(String chatId, String prompt, String response) {
+        if (!enabled || !running) {
+            return false;
+        }
+        if (!queue.offer(ContentService.newIdea(chatId, prompt, response))) {
+            rejectedCounter.increment();
+            log.warn("Очередь записи контента переполнена, идея чата {} будет сохранена синхронно", chatId);
+            return false;
+        }
+        return true;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (flusher == null || !flusher.isAlive()) {
+            return;
+        }
+        // Будим поток, ожидающий идеи или добор пачки: дальше он только дописывает очередь
+        flusher.interrupt();
+        try {
+            flusher.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("При остановке не сохранено идей: {}", queue.size());
+        }
+    }
+
+    private void runFlushLoop() {
+        List<ContentIdea> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Прерывание приходит только из shutdown(); флаг не восстанавливаем, чтобы дописать очередь в БД
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                // Прерывание могло прийти вне ожидания очереди: сбрасываем его, иначе пул соединений откажет в выдаче
+                Thread.interrupted();
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Ждёт первую идею, затем добирает пачку до batch-size, но не дольше flush-interval.
+     * При остановке не ждёт, а забирает то, что уже лежит в очереди.
+     */
+    private void collectBatch(List<ContentIdea> batch) throws InterruptedException {
+        if (!running) {
+            queue.drainTo(batch, batchSize);
+            return;
+        }
+        ContentIdea first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize && running) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            ContentIdea next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<ContentIdea> batch) {
+        long startedAt = System.nanoTime();
+        try {
+            contentService.saveAll(batch);
+            log.debug("Сохранена пачка идей: {}", batch.size());
+        } catch (Exception e) {
+            // Пачка пишется одной транзакцией: при ошибке сохраняем по одной с исходным createdAt,
+            // а слишком длинный текст ContentService.save обрежет
+            log.error("Не удалось сохранить пачку из {} идей, сохраняю по одной: {}", batch.size(), e.getMessage());
+            for (ContentIdea idea : batch) {
+                try {
+                    contentService.save(idea);
+                } catch (Exception single) {
+                    failedCounter.increment();
+                    log.error("Не удалось сохранить идею чата {}: {}", idea.getChatId(), single.getMessage());
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+}
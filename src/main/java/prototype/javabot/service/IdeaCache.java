@@ -0,0 +1,148 @@
+package prototype.javabot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-through кэш идей для экранов бота: карточки по (чат, id) и списки «последние N» каждого чата.
+ * Чат входит в ключ карточки, чтобы идея не попала в выдачу чужому чату.
+ * Вытеснение по размеру и TTL; записи сбрасываются точечно после save/updateStatus/delete в {@link ContentService}.
+ * <p>
+ * Списки чата лежат во вложенной карте, которая целиком заменяется при инвалидации:
+ * результат чтения, начатого до изменения, попадает в уже отброшенную карту и не переживает сброс.
+ */
+@Slf4j
+@Component
+public class IdeaCache {
+
+    private final boolean enabled;
+    private final Cache<SummaryKey, IdeaSummary> summaries;
+    private final Cache<String, ConcurrentMap<ListQuery, List<IdeaSummary>>> lists;
+
+    private final Counter summaryHits;
+    private final Counter summaryMisses;
+    private final Counter listHits;
+    private final Counter listMisses;
+
+    public IdeaCache(MeterRegistry meterRegistry,
+                     @Value("${content.cache.enabled:true}") boolean enabled,
+                     @Value("${content.cache.max-ideas:10000}") long maxIdeas,
+                     @Value("${content.cache.max-chats:1000}") long maxChats,
+                     @Value("${content.cache.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maxIdeas)
+                .expireAfterWrite(ttl)
+                .build();
+        this.lists = Caffeine.newBuilder()
+                .maximumSize(maxChats)
+                .expireAfterWrite(ttl)
+                .build();
+
+        this.summaryHits = getsCounter(meterRegistry, "idea", "hit");
+        this.summaryMisses = getsCounter(meterRegistry, "idea", "miss");
+        this.listHits = getsCounter(meterRegistry, "list", "hit");
+        this.listMisses = getsCounter(meterRegistry, "list", "miss");
+        Gauge.builder("content.cache.size", summaries, Cache::estimatedSize)
+                .description("Идеи в кэше")
+                .tag("cache", "idea")
+                .register(meterRegistry);
+        Gauge.builder("content.cache.size", lists, Cache::estimatedSize)
+                .description("Чаты со списками в кэше")
+                .tag("cache", "list")
+                .register(meterRegistry);
+
+        log.info("Кэш идей {}: идей {}, чатов {}, TTL {}", enabled ? "включён" : "выключен", maxIdeas, maxChats, ttl);
+    }
+
+    public IdeaSummary getSummary(String chatId, Long id, Supplier<IdeaSummary> loader) {
+        if (!enabled || chatId == null) {
+            return loader.get();
+        }
+        boolean[] loaded = {false};
+        // Вычисление под ключом: invalidate того же ключа дождётся загрузки и удалит её результат
+        IdeaSummary summary = summaries.get(new SummaryKey(chatId, id), key -> {
+            loaded[0] = true;
+            return loader.get();
+        });
+        (loaded[0] ? summaryMisses : summaryHits).increment();
+        return summary;
+    }
+
+    /**
+     * @param status null — список без фильтра по статусу
+     */
+    public List<IdeaSummary> getList(String chatId, IdeaStatus status, int limit, Supplier<List<IdeaSummary>> loader) {
+        if (!enabled || chatId == null) {
+            return loader.get();
+        }
+        ConcurrentMap<ListQuery, List<IdeaSummary>> chatLists = lists.get(chatId, key -> new ConcurrentHashMap<>());
+        ListQuery query = new ListQuery(status, limit);
+        List<IdeaSummary> cached = chatLists.get(query);
+        if (cached != null) {
+            listHits.increment();
+            return cached;
+        }
+        listMisses.increment();
+        List<IdeaSummary> loaded = List.copyOf(loader.get());
+        chatLists.put(query, loaded);
+        return loaded;
+    }
+
+    /**
+     * Новая идея чата: сбрасываются только его списки.
+     */
+    public void invalidateChat(String chatId) {
+        if (chatId != null) {
+            lists.invalidate(chatId);
+        }
+    }
+
+    /**
+     * Изменена или удалена идея известного чата.
+     */
+    public void invalidate(String chatId, Long id) {
+        summaries.invalidate(new SummaryKey(chatId, id));
+        invalidateChat(chatId);
+    }
+
+    /**
+     * Изменения через REST без chatId: владелец неизвестен, поэтому карточки ищутся по id среди всех чатов,
+     * а списки сбрасываются целиком.
+     */
+    public void invalidateIdeas(Collection<Long> ids) {
+        Set<Long> changed = Set.copyOf(ids);
+        summaries.asMap().keySet().removeIf(key -> changed.contains(key.id()));
+        lists.invalidateAll();
+    }
+
+    private static Counter getsCounter(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder("content.cache.gets")
+                .description("Обращения к кэшу идей")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record SummaryKey(String chatId, Long id) {
+    }
+
+    private record ListQuery(IdeaStatus status, int limit) {
+    }
+}
@@ -0,0 +1,264 @@
+package prototype.javabot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.TokenUsage;
+import prototype.javabot.repository.TokenUsageRepository;
+import prototype.javabot.service.ai.CompletionUsage;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учёт токенов по чатам и типам контента и дневной бюджет чата.
+ * Запись идёт в LongAdder (без блокировок на горячем пути), в БД накопленное сбрасывается периодически.
+ */
+@Slf4j
+@Service
+public class TokenUsageService {
+
+    private final TokenUsageRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final long dailyTokenBudget;
+    private final Clock clock;
+
+    /**
+     * Ещё не сохранённые в БД счётчики.
+     */
+    private final Map<UsageKey, UsageCounters> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Счётчики прошлых дней, убранные из pending на предыдущем сбросе. record(), взявший их до удаления,
+     * мог дописать токены уже после финального sumThenReset — такие остатки забирает следующий сброс.
+     * Доступ только из synchronized flush().
+     */
+    private final Map<UsageKey, UsageCounters> retired = new HashMap<>();
+
+    /**
+     * Расход за сегодня по чатам для проверки бюджета; при первом обращении за день подтягивается из БД.
+     */
+    private final Map<String, DailyTotal> dailyTotals = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenUsageService(TokenUsageRepository repository,
+                             MeterRegistry meterRegistry,
+                             @Value("${ai.usage.daily-token-budget:0}") long dailyTokenBudget) {
+        this(repository, meterRegistry, dailyTokenBudget, Clock.systemDefaultZone());
+    }
+
+    TokenUsageService(TokenUsageRepository repository, MeterRegistry meterRegistry, long dailyTokenBudget, Clock clock) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.dailyTokenBudget = dailyTokenBudget;
+        this.clock = clock;
+    }
+
+    public void record(String chatId, ContentType contentType, CompletionUsage usage) {
+        if (chatId == null || usage == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        UsageCounters counters = pending.computeIfAbsent(new UsageKey(chatId, today, contentType), key -> new UsageCounters());
+        counters.prompt.add(usage.promptTokens());
+        counters.completion.add(usage.completionTokens());
+        counters.requests.increment();
+        dailyTotal(chatId, today).tokens.add(usage.totalTokens());
+
+        String type = contentType != null ? contentType.name() : "NONE";
+        tokenCounter("prompt", type).increment(usage.promptTokens());
+        tokenCounter("completion", type).increment(usage.completionTokens());
+    }
+
+    /**
+     * 0 в ai.usage.daily-token-budget — без ограничений.
+     */
+    public boolean isOverBudget(String chatId) {
+        return dailyTokenBudget > 0 && getTodayTokens(chatId) >= dailyTokenBudget;
+    }
+
+    /**
+     * Останется ли у чата бюджет после расхода ещё {@code tokens} токенов.
+     */
+    public boolean hasBudgetFor(String chatId, long tokens) {
+        return dailyTokenBudget <= 0 || getTodayTokens(chatId) + tokens < dailyTokenBudget;
+    }
+
+    public long getTodayTokens(String chatId) {
+        return dailyTotal(chatId, LocalDate.now(clock)).tokens.sum();
+    }
+
+    public long getDailyTokenBudget() {
+        return dailyTokenBudget;
+    }
+
+    /**
+     * Расход чата за сегодня: сохранённое в БД плюс ещё не сброшенное.
+     */
+    public ChatUsage getTodayUsage(String chatId) {
+        LocalDate today = LocalDate.now(clock);
+        Map<ContentType, Long> tokensByType = new EnumMap<>(ContentType.class);
+        long promptTokens = 0;
+        long completionTokens = 0;
+        long requests = 0;
+
+        for (TokenUsage usage : repository.findByChatIdAndUsageDate(chatId, today)) {
+            promptTokens += usage.getPromptTokens();
+            completionTokens += usage.getCompletionTokens();
+            requests += usage.getRequests();
+            if (usage.getContentType() != null) {
+                tokensByType.merge(usage.getContentType(), usage.getTotalTokens(), Long::sum);
+            }
+        }
+        for (Map.Entry<UsageKey, UsageCounters> entry : pending.entrySet()) {
+            UsageKey key = entry.getKey();
+            if (!key.chatId().equals(chatId) || !key.date().equals(today)) {
+                continue;
+            }
+            UsageCounters counters = entry.getValue();
+            long prompt = counters.prompt.sum();
+            long completion = counters.completion.sum();
+            promptTokens += prompt;
+            completionTokens += completion;
+            requests += counters.requests.sum();
+            if (key.contentType() != null) {
+                tokensByType.merge(key.contentType(), prompt + completion, Long::sum);
+            }
+        }
+        return new ChatUsage(chatId, today, promptTokens, completionTokens, requests, tokensByType, dailyTokenBudget);
+    }
+
+    public List<TokenUsage> findByDate(LocalDate date) {
+        return repository.findByUsageDate(date);
+    }
+
+    /**
+     * Сбрасывает накопленное одним upsert'ом на ключ. synchronized — чтобы плановый сброс
+     * не пересёкся со сбросом при остановке.
+     */
+    @Scheduled(fixedDelayString = "${ai.usage.flush-interval:30s}")
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now(clock);
+        List<Drained> drained = new ArrayList<>();
+        retired.forEach((key, counters) -> drain(key, counters, drained));
+        retired.clear();
+        for (Map.Entry<UsageKey, UsageCounters> entry : pending.entrySet()) {
+            UsageKey key = entry.getKey();
+            UsageCounters counters = entry.getValue();
+            // Прошлый день: сначала убираем из карты, чтобы новые записи шли в новый объект, и только потом
+            // делаем финальный sumThenReset; сам объект дочищается ещё раз на следующем сбросе
+            if (key.date().isBefore(today) && pending.remove(key, counters)) {
+                retired.put(key, counters);
+            }
+            drain(key, counters, drained);
+        }
+        dailyTotals.entrySet().removeIf(entry -> entry.getValue().date.isBefore(today));
+
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        for (int i = 0; i < drained.size(); i++) {
+            Drained item = drained.get(i);
+            UsageKey key = item.key();
+            try {
+                repository.addUsage(key.chatId(), key.date(), TokenUsage.toColumn(key.contentType()),
+                        item.promptTokens(), item.completionTokens(), item.requests());
+            } catch (Exception e) {
+                log.error("Не удалось сохранить расход токенов, повторю при следующем сбросе: {}", e.getMessage());
+                drained.subList(i, drained.size()).forEach(this::restore);
+                return;
+            }
+        }
+        log.debug("Сохранён расход токенов: {} записей", drained.size());
+    }
+
+    /**
+     * sumThenReset атомарен по ячейкам, поэтому параллельные записи не теряются, а попадут в следующий сброс.
+     */
+    private static void drain(UsageKey key, UsageCounters counters, List<Drained> drained) {
+        Drained item = new Drained(key,
+                counters.prompt.sumThenReset(), counters.completion.sumThenReset(), counters.requests.sumThenReset());
+        if (item.requests() > 0) {
+            drained.add(item);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void restore(Drained item) {
+        UsageCounters counters = pending.computeIfAbsent(item.key(), key -> new UsageCounters());
+        counters.prompt.add(item.promptTokens());
+        counters.completion.add(item.completionTokens());
+        counters.requests.add(item.requests());
+    }
+
+    private DailyTotal dailyTotal(String chatId, LocalDate today) {
+        DailyTotal total = dailyTotals.get(chatId);
+        if (total != null && total.date.equals(today)) {
+            return total;
+        }
+        // Запрос к БД — вне операций над картой, чтобы не держать её сегмент на время I/O
+        DailyTotal loaded = new DailyTotal(today, repository.sumTokens(chatId, today));
+        return dailyTotals.merge(chatId, loaded, (existing, fresh) -> existing.date.equals(today) ? existing : fresh);
+    }
+
+    private Counter tokenCounter(String kind, String contentType) {
+        return Counter.builder("ai.tokens")
+                .description("Израсходованные токены")
+                .tag("kind", kind)
+                .tag("content_type", contentType)
+                .register(meterRegistry);
+    }
+
+    public record ChatUsage(String chatId,
+                            LocalDate date,
+                            long promptTokens,
+                            long completionTokens,
+                            long requests,
+                            Map<ContentType, Long> tokensByType,
+                            long dailyTokenBudget) {
+
+        public long totalTokens() {
+            return promptTokens + completionTokens;
+        }
+    }
+
+    private record UsageKey(String chatId, LocalDate date, ContentType contentType) {
+    }
+
+    private record Drained(UsageKey key, long promptTokens, long completionTokens, long requests) {
+    }
+
+    private static class UsageCounters {
+        private final LongAdder prompt = new LongAdder();
+        private final LongAdder completion = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+    }
+
+    private static class DailyTotal {
+        private final LocalDate date;
+        private final LongAdder tokens = new LongAdder();
+
+        DailyTotal(LocalDate date, long initial) {
+            this.date = date;
+            tokens.add(initial);
+        }
+    }
+}
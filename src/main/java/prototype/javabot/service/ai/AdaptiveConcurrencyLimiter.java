@@ -0,0 +1,83 @@
+package prototype.javabot.service.ai;
+
+/**
+ * Ограничитель одновременных запросов с адаптивным лимитом (AIMD).
+ * <p>
+ * Лимит растёт на 1/limit после каждого успешного ответа, если задержка не превышает
+ * базовую (медленная EWMA) более чем в latencyTolerance раз и лимит реально используется.
+ * При ошибке, таймауте или слишком большой задержке лимит умножается на backoffRatio.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BASELINE_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private double limit;
+    private double baselineLatencyNanos;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, double latencyTolerance) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Некорректные границы лимита: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        boolean utilized = inFlight * 2 >= (int) limit;
+        inFlight--;
+
+        if (baselineLatencyNanos == 0) {
+            baselineLatencyNanos = latencyNanos;
+            return;
+        }
+
+        if (latencyNanos > baselineLatencyNanos * latencyTolerance) {
+            decrease();
+        } else if (utilized) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * BASELINE_SMOOTHING;
+    }
+
+    public synchronized void onDropped() {
+        inFlight--;
+        decrease();
+    }
+
+    /**
+     * Запрос отменён или завершился ошибкой, не связанной с перегрузкой: лимит не меняется.
+     */
+    public synchronized void onIgnore() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
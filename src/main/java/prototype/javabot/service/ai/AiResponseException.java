@@ -0,0 +1,18 @@
+package prototype.javabot.service.ai;
+
+import lombok.Getter;
+
+/**
+ * Ответ AI получен, но использовать его нельзя (ошибка API, пустой список choices).
+ * Несёт готовый текст для пользователя.
+ */
+@Getter
+public class AiResponseException extends RuntimeException {
+
+    private final String userMessage;
+
+    public AiResponseException(String userMessage) {
+        super(userMessage);
+        this.userMessage = userMessage;
+    }
+}
@@ -0,0 +1,11 @@
+package prototype.javabot.service.ai;
+
+/**
+ * Запрос к AI отклонён без обращения к сети: открыт circuit breaker или исчерпан лимит одновременных запросов.
+ */
+public class AiUnavailableException extends AiResponseException {
+
+    public AiUnavailableException(String userMessage) {
+        super(userMessage);
+    }
+}
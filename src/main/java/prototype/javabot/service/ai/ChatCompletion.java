@@ -0,0 +1,11 @@
+package prototype.javabot.service.ai;
+
+/**
+ * Ответ провайдера: текст и, если провайдер его вернул, расход токенов ({@code usage} может быть {@code null}).
+ */
+public record ChatCompletion(String content, CompletionUsage usage) {
+
+    public static ChatCompletion of(String content) {
+        return new ChatCompletion(content, null);
+    }
+}
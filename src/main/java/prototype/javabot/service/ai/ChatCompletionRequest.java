@@ -0,0 +1,17 @@
+package prototype.javabot.service.ai;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Запрос к OpenAI-совместимому /chat/completions, не зависящий от конкретного провайдера.
+ */
+@Value
+@Builder
+public class ChatCompletionRequest {
+
+    String systemPrompt;
+    String userPrompt;
+    @Builder.Default
+    ModelTier tier = ModelTier.DEFAULT;
+}
@@ -0,0 +1,183 @@
+package prototype.javabot.service.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кодирует тело /chat/completions сразу в байты.
+ * Всё, что не зависит от текста пользователя (модель, параметры, системный промпт), кодируется один раз
+ * и переиспользуется: комбинаций типа контента и настроек немного, а сериализация вложенных Map на каждый запрос
+ * заметно нагружает GC. На каждый запрос экранируется только пользовательский текст.
+ */
+public class ChatRequestEncoder {
+
+    // Префикс обрывается внутри объекта, генератор не должен дописывать закрывающие скобки
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .build();
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}]}".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_CACHED_PREFIXES = 1024;
+
+    private final Map<PrefixKey, byte[]> prefixes = new ConcurrentHashMap<>();
+
+    public byte[] encode(ChatCompletionRequest request, String model, boolean stream) {
+        ModelTier tier = request.getTier();
+        byte[] prefix = prefix(new PrefixKey(model, stream, tier.getMaxTokens(), tier.getTemperature(), request.getSystemPrompt()));
+        String userPrompt = request.getUserPrompt();
+
+        // Единственная аллокация на запрос: длина экранированного текста считается заранее
+        int contentLength = escapedLength(userPrompt);
+        byte[] body = new byte[prefix.length + contentLength + SUFFIX.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        writeEscaped(userPrompt, body, prefix.length);
+        System.arraycopy(SUFFIX, 0, body, prefix.length + contentLength, SUFFIX.length);
+        return body;
+    }
+
+    /**
+     * Длина строки в UTF-8 после JSON-экранирования. Одиночные суррогаты, как и в String.getBytes, заменяются на '?'.
+     */
+    static int escapedLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                length += 2;
+            } else if (c < 0x20) {
+                length += shortEscape(c) != 0 ? 2 : 6;
+            } else if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    static int writeEscaped(String value, byte[] out, int offset) {
+        int pos = offset;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out[pos++] = '\\';
+                out[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                char escape = shortEscape(c);
+                out[pos++] = '\\';
+                if (escape != 0) {
+                    out[pos++] = (byte) escape;
+                } else {
+                    out[pos++] = 'u';
+                    out[pos++] = '0';
+                    out[pos++] = '0';
+                    out[pos++] = HEX[c >> 4];
+                    out[pos++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static char shortEscape(char c) {
+        return switch (c) {
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            case '\t' -> 't';
+            case '\b' -> 'b';
+            case '\f' -> 'f';
+            default -> 0;
+        };
+    }
+
+    int cachedPrefixCount() {
+        return prefixes.size();
+    }
+
+    private byte[] prefix(PrefixKey key) {
+        byte[] prefix = prefixes.get(key);
+        if (prefix != null) {
+            return prefix;
+        }
+        prefix = encodePrefix(key);
+        // Системный промпт собирается из конечного набора вариантов, но на всякий случай кэш ограничен
+        if (prefixes.size() < MAX_CACHED_PREFIXES) {
+            prefixes.putIfAbsent(key, prefix);
+        }
+        return prefix;
+    }
+
+    /**
+     * Всё тело до значения content пользовательского сообщения, включая открывающую кавычку.
+     */
+    private static byte[] encodePrefix(PrefixKey key) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + key.systemPrompt().length() * 2);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("model", key.model());
+            generator.writeBooleanField("stream", key.stream());
+            if (key.stream()) {
+                // Без этого OpenAI-совместимые API не присылают usage в потоковом режиме
+                generator.writeObjectFieldStart("stream_options");
+                generator.writeBooleanField("include_usage", true);
+                generator.writeEndObject();
+            }
+            if (key.maxTokens() != null) {
+                generator.writeNumberField("max_tokens", key.maxTokens());
+            }
+            if (key.temperature() != null) {
+                generator.writeNumberField("temperature", key.temperature());
+            }
+            generator.writeArrayFieldStart("messages");
+            generator.writeStartObject();
+            generator.writeStringField("role", "system");
+            generator.writeStringField("content", key.systemPrompt());
+            generator.writeEndObject();
+            generator.writeStartObject();
+            generator.writeStringField("role", "user");
+            generator.writeFieldName("content");
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Двоеточие генератор пишет только вместе со значением, поэтому дописываем его сами
+        out.write(':');
+        out.write('"');
+        return out.toByteArray();
+    }
+
+    private record PrefixKey(String model, boolean stream, Integer maxTokens, Double temperature, String systemPrompt) {
+    }
+}
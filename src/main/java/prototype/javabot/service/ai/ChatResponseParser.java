@@ -0,0 +1,138 @@
+package prototype.javabot.service.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Потоковый разбор ответа /chat/completions: из JSON читаются только content, error и usage,
+ * всё остальное пропускается без построения дерева JsonNode.
+ */
+public class ChatResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Разбирает полный ответ; {@code messageField} — "message" для обычного ответа, "delta" для фрагмента SSE.
+     */
+    public ChatResponse parse(InputStream json, String messageField) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parse(parser, messageField);
+        }
+    }
+
+    public ChatResponse parse(String json, String messageField) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parse(parser, messageField);
+        }
+    }
+
+    private ChatResponse parse(JsonParser parser, String messageField) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Ожидался JSON-объект");
+        }
+
+        String content = null;
+        String error = null;
+        CompletionUsage usage = null;
+        boolean hasChoices = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "error" -> error = readErrorMessage(parser, value);
+                case "usage" -> usage = readUsage(parser, value);
+                case "choices" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (!hasChoices) {
+                            hasChoices = true;
+                            content = readChoiceContent(parser, messageField);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new ChatResponse(content != null ? content : "", usage, error, hasChoices);
+    }
+
+    private static String readChoiceContent(JsonParser parser, String messageField) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals(messageField) && value == JsonToken.START_OBJECT) {
+                content = readField(parser, "content");
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private static String readErrorMessage(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_OBJECT) {
+            String message = readField(parser, "message");
+            return message != null ? message : "";
+        }
+        return parser.getValueAsString("");
+    }
+
+    private static CompletionUsage readUsage(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        long promptTokens = 0;
+        long completionTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "prompt_tokens" -> promptTokens = parser.getValueAsLong();
+                case "completion_tokens" -> completionTokens = parser.getValueAsLong();
+                default -> parser.skipChildren();
+            }
+        }
+        return new CompletionUsage(promptTokens, completionTokens);
+    }
+
+    /**
+     * Читает строковое поле текущего объекта и дочитывает объект до конца.
+     */
+    private static String readField(JsonParser parser, String name) throws IOException {
+        String result = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals(name) && value.isScalarValue()) {
+                result = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param error      текст ошибки API или {@code null}
+     * @param hasChoices был ли в ответе хотя бы один вариант
+     */
+    public record ChatResponse(String content, CompletionUsage usage, String error, boolean hasChoices) {
+    }
+}
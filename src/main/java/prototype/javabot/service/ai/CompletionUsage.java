@@ -0,0 +1,11 @@
+package prototype.javabot.service.ai;
+
+/**
+ * Поле {@code usage} ответа /chat/completions.
+ */
+public record CompletionUsage(long promptTokens, long completionTokens) {
+
+    public long totalTokens() {
+        return promptTokens + completionTokens;
+    }
+}
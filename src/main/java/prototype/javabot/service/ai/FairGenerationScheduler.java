@@ -0,0 +1,254 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Справедливое распределение генераций между чатами (deficit round robin).
+ * Очередь у каждого чата своя; за круг чат с весом w может запустить до w генераций,
+ * одновременно у него выполняется не больше perChatMaxInFlight * w. Так один чат, приславший 50 тем подряд,
+ * не занимает весь пул, а остальные чаты ждут не дольше одного круга.
+ */
+@Slf4j
+public class FairGenerationScheduler {
+
+    static final String QUEUE_FULL_MESSAGE = "⏳ У вас уже много запросов в очереди. Дождитесь ответа на предыдущие.";
+
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final int perChatMaxInFlight;
+    private final int maxQueuedPerChat;
+    private final Map<String, Integer> weights;
+
+    private final Map<String, ChatQueue> chats = new HashMap<>();
+    private final Deque<ChatQueue> active = new ArrayDeque<>();
+    private int inFlight;
+    private int queued;
+
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public FairGenerationScheduler(MeterRegistry meterRegistry, boolean enabled, int maxInFlight, int perChatMaxInFlight,
+                                   int maxQueuedPerChat, Map<String, Integer> weights) {
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.perChatMaxInFlight = perChatMaxInFlight;
+        this.maxQueuedPerChat = maxQueuedPerChat;
+        this.weights = Map.copyOf(weights);
+
+        this.queueWait = Timer.builder("ai.fair.queue.wait")
+                .description("Ожидание генерации в очереди чата")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("ai.fair.rejected")
+                .description("Генерации, отклонённые из-за переполненной очереди чата")
+                .register(meterRegistry);
+        Gauge.builder("ai.fair.in.flight", this, FairGenerationScheduler::getInFlight).register(meterRegistry);
+        Gauge.builder("ai.fair.queued", this, FairGenerationScheduler::getQueued).register(meterRegistry);
+    }
+
+    public <T> Mono<T> schedule(String chatId, Supplier<Mono<T>> task) {
+        if (!enabled || chatId == null) {
+            return Mono.defer(task);
+        }
+        return Mono.defer(() -> {
+            Ticket ticket = enqueue(chatId);
+            return ticket.granted.asMono()
+                    .then(Mono.defer(task))
+                    .doFinally(signal -> finish(ticket));
+        });
+    }
+
+    public <T> Flux<T> scheduleMany(String chatId, Supplier<Flux<T>> task) {
+        if (!enabled || chatId == null) {
+            return Flux.defer(task);
+        }
+        return Flux.defer(() -> {
+            Ticket ticket = enqueue(chatId);
+            return ticket.granted.asMono()
+                    .thenMany(Flux.defer(task))
+                    .doFinally(signal -> finish(ticket));
+        });
+    }
+
+    /**
+     * Слот для хеджирующего запроса: он тоже уходит в API, поэтому занимает место в maxInFlight.
+     * Хедж нужен только пока основной запрос ещё идёт, так что в очередь он не встаёт —
+     * если свободного слота нет, возвращается пустой Mono и хедж не отправляется.
+     */
+    public <T> Mono<T> scheduleHedge(Supplier<Mono<T>> task) {
+        if (!enabled) {
+            return Mono.defer(task);
+        }
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if (inFlight >= maxInFlight) {
+                    return Mono.<T>empty();
+                }
+                inFlight++;
+            }
+            return Mono.defer(task).doFinally(signal -> releaseHedge());
+        });
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    private Ticket enqueue(String chatId) {
+        List<Ticket> ready;
+        Ticket ticket;
+        synchronized (this) {
+            ChatQueue chat = chats.computeIfAbsent(chatId, id -> new ChatQueue(id, weights.getOrDefault(id, 1)));
+            if (chat.pending.size() >= maxQueuedPerChat) {
+                rejected.increment();
+                log.warn("Очередь генераций чата {} переполнена ({})", chatId, chat.pending.size());
+                throw new AiUnavailableException(QUEUE_FULL_MESSAGE);
+            }
+            ticket = new Ticket(chat);
+            chat.pending.addLast(ticket);
+            queued++;
+            if (!chat.active) {
+                chat.active = true;
+                active.addLast(chat);
+            }
+            ready = dispatch();
+        }
+        grant(ready);
+        return ticket;
+    }
+
+    private void finish(Ticket ticket) {
+        List<Ticket> ready;
+        synchronized (this) {
+            ChatQueue chat = ticket.chat;
+            if (ticket.state == State.WAITING) {
+                // Отменили до запуска
+                chat.pending.remove(ticket);
+                queued--;
+            } else if (ticket.state == State.GRANTED) {
+                chat.inFlight--;
+                inFlight--;
+            }
+            ticket.state = State.DONE;
+            if (chat.inFlight == 0 && chat.pending.isEmpty() && !chat.active) {
+                chats.remove(chat.chatId);
+            }
+            ready = dispatch();
+        }
+        grant(ready);
+    }
+
+    private void releaseHedge() {
+        List<Ticket> ready;
+        synchronized (this) {
+            inFlight--;
+            ready = dispatch();
+        }
+        grant(ready);
+    }
+
+    /**
+     * Выбирает, какие ожидающие генерации можно запустить. Вызывается под блокировкой,
+     * сам запуск — снаружи, чтобы не выполнять чужой код под монитором.
+     */
+    private List<Ticket> dispatch() {
+        List<Ticket> ready = new ArrayList<>();
+        int blocked = 0;
+        while (inFlight < maxInFlight && !active.isEmpty() && blocked < active.size()) {
+            ChatQueue chat = active.peekFirst();
+            if (chat.pending.isEmpty()) {
+                active.pollFirst();
+                chat.active = false;
+                chat.deficit = 0;
+                if (chat.inFlight == 0) {
+                    chats.remove(chat.chatId);
+                }
+                continue;
+            }
+            if (chat.inFlight >= perChatMaxInFlight * chat.weight) {
+                // Чат выбрал свою долю одновременных генераций, дефицит сохраняется до следующего круга
+                active.addLast(active.pollFirst());
+                blocked++;
+                continue;
+            }
+            if (chat.deficit < 1) {
+                chat.deficit += chat.weight;
+            }
+
+            Ticket ticket = chat.pending.pollFirst();
+            queued--;
+            chat.deficit--;
+            chat.inFlight++;
+            inFlight++;
+            ticket.state = State.GRANTED;
+            ready.add(ticket);
+            blocked = 0;
+
+            if (chat.pending.isEmpty()) {
+                // Опустевший чат выходит из круга: новая генерация поставит его в конец, а не вперёд остальных
+                active.pollFirst();
+                chat.active = false;
+                chat.deficit = 0;
+            } else if (chat.deficit < 1) {
+                active.addLast(active.pollFirst());
+            }
+        }
+        return ready;
+    }
+
+    private void grant(List<Ticket> ready) {
+        for (Ticket ticket : ready) {
+            queueWait.record(System.nanoTime() - ticket.enqueuedAt, TimeUnit.NANOSECONDS);
+            ticket.granted.tryEmitEmpty();
+        }
+    }
+
+    private enum State {
+        WAITING, GRANTED, DONE
+    }
+
+    private static class ChatQueue {
+        private final String chatId;
+        private final int weight;
+        private final Deque<Ticket> pending = new ArrayDeque<>();
+        private int deficit;
+        private int inFlight;
+        private boolean active;
+
+        ChatQueue(String chatId, int weight) {
+            this.chatId = chatId;
+            this.weight = Math.max(1, weight);
+        }
+    }
+
+    private static class Ticket {
+        private final ChatQueue chat;
+        private final long enqueuedAt = System.nanoTime();
+        private final Sinks.Empty<Void> granted = Sinks.empty();
+        private State state = State.WAITING;
+
+        Ticket(ChatQueue chat) {
+            this.chat = chat;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package prototype.javabot.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ограниченный кэш готовых ответов AI с вытеснением по размеру и TTL.
+ * Хранит только успешные ответы, ошибки никогда не кэшируются.
+ */
+@Slf4j
+@Component
+public class GenerationCache {
+
+    private final boolean enabled;
+    private final Cache<GenerationKey, String> cache;
+
+    public GenerationCache(MeterRegistry meterRegistry,
+                           @Value("${ai.cache.enabled:true}") boolean enabled,
+                           @Value("${ai.cache.max-size:1000}") long maxSize,
+                           @Value("${ai.cache.ttl:1h}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ai.generation");
+        Gauge.builder("ai.generation.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Доля генераций, обслуженных из кэша")
+                .register(meterRegistry);
+
+        log.info("Кэш генераций {}: размер {}, TTL {}", enabled ? "включён" : "выключен", maxSize, ttl);
+    }
+
+    public String get(GenerationKey key) {
+        return enabled ? cache.getIfPresent(key) : null;
+    }
+
+    public void put(GenerationKey key, String result) {
+        if (enabled) {
+            cache.put(key, result);
+        }
+    }
+
+    public double getHitRatio() {
+        return cache.stats().hitRate();
+    }
+}
@@ -0,0 +1,37 @@
+package prototype.javabot.service.ai;
+
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.CommunicationStyle;
+import prototype.javabot.model.aiSettings.ContentLength;
+import prototype.javabot.model.aiSettings.ResponseLanguage;
+import prototype.javabot.model.aiSettings.UserAiSetting;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Ключ генерации: нормализованный запрос + тип контента + настройки AI.
+ * Настройки копируются по значению, потому что UserAiSetting изменяемый.
+ */
+public record GenerationKey(String prompt,
+                            ContentType contentType,
+                            ResponseLanguage language,
+                            ContentLength length,
+                            CommunicationStyle style) {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static GenerationKey of(GenerationRequest request) {
+        UserAiSetting setting = request.getAiSetting();
+        return new GenerationKey(
+                normalize(request.getPrompt()),
+                request.getContentType(),
+                setting != null ? setting.getLanguage() : null,
+                setting != null ? setting.getLength() : null,
+                setting != null ? setting.getStyle() : null);
+    }
+
+    static String normalize(String prompt) {
+        return WHITESPACE.matcher(prompt.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+}
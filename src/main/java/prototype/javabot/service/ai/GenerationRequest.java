@@ -0,0 +1,30 @@
+package prototype.javabot.service.ai;
+
+import lombok.Builder;
+import lombok.Value;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.UserAiSetting;
+
+/**
+ * Параметры одной генерации.
+ * freshVariant — пользователь явно просит новый вариант, кэш не используется.
+ * chatId — чат, для которого идёт генерация (может быть {@code null}); нужен для предгенерации вариантов.
+ */
+@Value
+@Builder(toBuilder = true)
+public class GenerationRequest {
+
+    String prompt;
+    ContentType contentType;
+    UserAiSetting aiSetting;
+    boolean freshVariant;
+    String chatId;
+
+    public static GenerationRequest of(String prompt, ContentType contentType, UserAiSetting aiSetting) {
+        return GenerationRequest.builder()
+                .prompt(prompt)
+                .contentType(contentType)
+                .aiSetting(aiSetting)
+                .build();
+    }
+}
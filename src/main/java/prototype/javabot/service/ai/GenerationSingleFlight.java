@@ -0,0 +1,80 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Объединяет одновременные одинаковые запросы к AI: первый вызывающий делает HTTP-запрос,
+ * остальные подписываются на тот же результат. Запись удаляется, как только запрос завершился.
+ */
+@Component
+public class GenerationSingleFlight {
+
+    private final boolean enabled;
+    private final Map<GenerationKey, Mono<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public GenerationSingleFlight(MeterRegistry meterRegistry,
+                                  @Value("${ai.single-flight.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.leaders = Counter.builder("ai.singleflight.calls")
+                .description("Запросы, выполнившие HTTP-вызов")
+                .tag("role", "leader")
+                .register(meterRegistry);
+        this.followers = Counter.builder("ai.singleflight.calls")
+                .description("Запросы, присоединившиеся к уже выполняющемуся вызову")
+                .tag("role", "follower")
+                .register(meterRegistry);
+        Gauge.builder("ai.singleflight.coalescing.factor", this, GenerationSingleFlight::getCoalescingFactor)
+                .description("Среднее число запросов, обслуженных одним HTTP-вызовом")
+                .register(meterRegistry);
+        Gauge.builder("ai.singleflight.in.flight", inFlight, Map::size)
+                .register(meterRegistry);
+    }
+
+    public Mono<String> execute(GenerationKey key, Supplier<Mono<String>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            Mono<String> existing = inFlight.get(key);
+            if (existing != null) {
+                followers.increment();
+                return existing;
+            }
+
+            AtomicReference<Mono<String>> self = new AtomicReference<>();
+            Mono<String> shared = Mono.defer(call)
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .cache();
+            self.set(shared);
+
+            Mono<String> winner = inFlight.putIfAbsent(key, shared);
+            if (winner != null) {
+                followers.increment();
+                return winner;
+            }
+            leaders.increment();
+            return shared;
+        });
+    }
+
+    public double getCoalescingFactor() {
+        double leaderCount = leaders.count();
+        return leaderCount == 0 ? 1.0 : (leaderCount + followers.count()) / leaderCount;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,209 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Хеджирование запросов: если первый запрос не ответил за заданный перцентиль недавних задержек,
+ * отправляется второй такой же. Побеждает первый успешный ответ, второй запрос отменяется.
+ * Число хеджей ограничено бюджетом: каждый запрос добавляет budgetRatio токена, хедж тратит один.
+ * Хедж может идти своим путём (hedgeAttempt): пустой ответ от него значит, что хедж не отправлен
+ * (например, нет свободного слота у планировщика), — тогда просто ждём основной запрос, а токен бюджета возвращается.
+ */
+@Slf4j
+@Component
+public class HedgingPolicy {
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final int minSamples;
+    private final double budgetRatio;
+    private final double maxBudget;
+
+    private final LatencyTracker latencyTracker;
+    private final Counter firedCounter;
+    private final Counter wonCounter;
+    private final Counter skippedCounter;
+    private double budget;
+
+    public HedgingPolicy(MeterRegistry meterRegistry,
+                         @Value("${ai.hedging.enabled:false}") boolean enabled,
+                         @Value("${ai.hedging.percentile:0.95}") double percentile,
+                         @Value("${ai.hedging.min-delay:2s}") Duration minDelay,
+                         @Value("${ai.hedging.min-samples:20}") int minSamples,
+                         @Value("${ai.hedging.window-size:200}") int windowSize,
+                         @Value("${ai.hedging.budget-ratio:0.1}") double budgetRatio) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.minSamples = minSamples;
+        this.budgetRatio = budgetRatio;
+        this.maxBudget = Math.max(1.0, budgetRatio * 100);
+        this.latencyTracker = new LatencyTracker(windowSize);
+
+        this.firedCounter = Counter.builder("ai.hedging.fired")
+                .description("Отправленные хеджирующие запросы")
+                .register(meterRegistry);
+        this.wonCounter = Counter.builder("ai.hedging.won")
+                .description("Хеджирующие запросы, ответившие раньше основного")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("ai.hedging.skipped")
+                .description("Хеджи, которые не удалось отправить (нет свободного слота)")
+                .register(meterRegistry);
+        Gauge.builder("ai.hedging.delay.ms", this, policy -> policy.currentDelay().toMillis())
+                .description("Текущая задержка перед отправкой хеджа")
+                .register(meterRegistry);
+    }
+
+    public Mono<String> execute(Supplier<Mono<String>> attempt) {
+        return execute(attempt, attempt);
+    }
+
+    public Mono<String> execute(Supplier<Mono<String>> attempt, Supplier<Mono<String>> hedgeAttempt) {
+        if (!enabled) {
+            return Mono.defer(attempt);
+        }
+        return Mono.defer(() -> {
+            depositBudget();
+            if (latencyTracker.size() < minSamples) {
+                return timed(attempt);
+            }
+            Duration delay = currentDelay();
+            return Mono.create(sink -> new HedgedCall(sink, attempt, hedgeAttempt, delay).start());
+        });
+    }
+
+    public double getFiredCount() {
+        return firedCounter.count();
+    }
+
+    public double getWonCount() {
+        return wonCounter.count();
+    }
+
+    public double getSkippedCount() {
+        return skippedCounter.count();
+    }
+
+    private Duration currentDelay() {
+        Duration observed = Duration.ofNanos(latencyTracker.percentile(percentile));
+        return observed.compareTo(minDelay) > 0 ? observed : minDelay;
+    }
+
+    private Mono<String> timed(Supplier<Mono<String>> attempt) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return attempt.get().doOnNext(result -> latencyTracker.record(System.nanoTime() - startedAt));
+        });
+    }
+
+    private synchronized void depositBudget() {
+        budget = Math.min(maxBudget, budget + budgetRatio);
+    }
+
+    private synchronized void refundBudget() {
+        budget = Math.min(maxBudget, budget + 1.0);
+    }
+
+    private synchronized boolean tryWithdrawBudget() {
+        if (budget < 1.0) {
+            return false;
+        }
+        budget -= 1.0;
+        return true;
+    }
+
+    private class HedgedCall {
+        private final MonoSink<String> sink;
+        private final Supplier<Mono<String>> attempt;
+        private final Supplier<Mono<String>> hedgeAttempt;
+        private final Duration delay;
+        private final Disposable.Composite subscriptions = Disposables.composite();
+
+        private boolean finished;
+        private int running;
+
+        HedgedCall(MonoSink<String> sink, Supplier<Mono<String>> attempt, Supplier<Mono<String>> hedgeAttempt,
+                   Duration delay) {
+            this.sink = sink;
+            this.attempt = attempt;
+            this.hedgeAttempt = hedgeAttempt;
+            this.delay = delay;
+        }
+
+        void start() {
+            sink.onCancel(subscriptions);
+            launch(false);
+            subscriptions.add(Mono.delay(delay).subscribe(tick -> fireHedge()));
+        }
+
+        private void fireHedge() {
+            synchronized (this) {
+                if (finished || running == 0 || !tryWithdrawBudget()) {
+                    return;
+                }
+            }
+            firedCounter.increment();
+            log.debug("Запрос к AI не ответил за {} мс, отправляю хедж", delay.toMillis());
+            launch(true);
+        }
+
+        private void launch(boolean hedge) {
+            synchronized (this) {
+                running++;
+            }
+            Mono<String> call = hedge
+                    ? timed(hedgeAttempt).switchIfEmpty(Mono.fromRunnable(this::onHedgeSkipped))
+                    : timed(attempt).switchIfEmpty(Mono.error(() -> new IllegalStateException("AI вернул пустой ответ")));
+            subscriptions.add(call.subscribe(result -> onResult(result, hedge), this::onError));
+        }
+
+        private void onHedgeSkipped() {
+            synchronized (this) {
+                running--;
+            }
+            // Основной запрос ещё идёт (иначе хедж бы не запускался), его результат и дождёмся
+            refundBudget();
+            skippedCounter.increment();
+            log.debug("Хедж не отправлен: нет свободного слота");
+        }
+
+        private void onResult(String result, boolean hedge) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            if (hedge) {
+                wonCounter.increment();
+            }
+            subscriptions.dispose();
+            sink.success(result);
+        }
+
+        private void onError(Throwable error) {
+            synchronized (this) {
+                running--;
+                if (finished || running > 0) {
+                    return;
+                }
+                finished = true;
+            }
+            subscriptions.dispose();
+            sink.error(error);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package prototype.javabot.service.ai;
+
+import java.util.Arrays;
+
+/**
+ * Кольцевой буфер последних задержек для оценки перцентилей.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int position;
+    private int size;
+
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[position] = latencyNanos;
+        position = (position + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    /**
+     * @param percentile значение от 0 до 1, например 0.95
+     * @return задержка в наносекундах или 0, если замеров ещё нет
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,22 @@
+package prototype.javabot.service.ai;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Провайдер языковой модели с OpenAI-совместимым API.
+ */
+public interface LlmProvider {
+
+    String getName();
+
+    /**
+     * @return текст ответа и расход токенов; ошибки API приходят как {@link AiResponseException}
+     */
+    Mono<ChatCompletion> complete(ChatCompletionRequest request);
+
+    /**
+     * @return фрагменты текста по мере генерации; usage, если провайдер его передаёт, приходит в последнем фрагменте
+     */
+    Flux<ChatCompletion> stream(ChatCompletionRequest request);
+}
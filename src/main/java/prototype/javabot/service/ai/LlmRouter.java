@@ -0,0 +1,166 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Выбирает провайдера с лучшими недавними задержкой и долей ошибок
+ * и автоматически переключается на следующий, если провайдер ответил ошибкой или не ответил вовремя.
+ * У каждого провайдера свой {@link UpstreamGuard}: деградация одного не ограничивает остальных.
+ */
+@Slf4j
+public class LlmRouter {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double ERROR_SMOOTHING = 0.1;
+    private static final double ERROR_PENALTY = 10.0;
+
+    private final List<RoutedProvider> providers;
+
+    public LlmRouter(List<LlmProvider> providers, Function<String, UpstreamGuard> guardFactory, MeterRegistry meterRegistry) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("Не настроен ни один AI-провайдер");
+        }
+        this.providers = providers.stream()
+                .map(provider -> new RoutedProvider(provider, guardFactory.apply(provider.getName()), meterRegistry))
+                .toList();
+        log.info("AI-провайдеры: {}", providers.stream().map(LlmProvider::getName).toList());
+    }
+
+    public Mono<ChatCompletion> complete(ChatCompletionRequest request) {
+        return complete(request, candidates(), 0);
+    }
+
+    public Flux<ChatCompletion> stream(ChatCompletionRequest request) {
+        return stream(request, candidates(), 0);
+    }
+
+    /**
+     * Фоновую работу (предгенерацию вариантов) стоит запускать, только если хотя бы у одного провайдера есть запас.
+     */
+    public boolean hasSpareCapacity() {
+        return providers.stream().anyMatch(p -> p.getGuard().hasSpareCapacity());
+    }
+
+    /**
+     * Порядок попыток: сначала провайдеры с закрытым circuit breaker, затем по возрастанию оценки.
+     */
+    public List<RoutedProvider> candidates() {
+        List<RoutedProvider> ordered = new ArrayList<>(providers);
+        ordered.sort(Comparator.comparing((RoutedProvider p) -> !p.getGuard().isAvailable())
+                .thenComparingDouble(RoutedProvider::score));
+        return ordered;
+    }
+
+    private Mono<ChatCompletion> complete(ChatCompletionRequest request, List<RoutedProvider> candidates, int index) {
+        RoutedProvider routed = candidates.get(index);
+        return Mono.defer(() -> {
+                    long startedAt = System.nanoTime();
+                    return routed.getGuard().protect(routed.getProvider().complete(request))
+                            .doOnNext(result -> routed.recordSuccess(System.nanoTime() - startedAt));
+                })
+                .onErrorResume(e -> {
+                    routed.recordFailure(e);
+                    if (index + 1 >= candidates.size() || !UpstreamGuard.isUpstreamFailure(e)) {
+                        return Mono.error(e);
+                    }
+                    routed.failover(candidates.get(index + 1), e);
+                    return complete(request, candidates, index + 1);
+                });
+    }
+
+    private Flux<ChatCompletion> stream(ChatCompletionRequest request, List<RoutedProvider> candidates, int index) {
+        RoutedProvider routed = candidates.get(index);
+        return Flux.defer(() -> {
+            long startedAt = System.nanoTime();
+            AtomicBoolean emitted = new AtomicBoolean();
+            return routed.getGuard().protect(routed.getProvider().stream(request))
+                    .doOnNext(delta -> {
+                        if (emitted.compareAndSet(false, true)) {
+                            routed.recordSuccess(System.nanoTime() - startedAt);
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        routed.recordFailure(e);
+                        // После первых фрагментов переключаться нельзя: пользователь уже видит часть текста
+                        if (emitted.get() || index + 1 >= candidates.size() || !UpstreamGuard.isUpstreamFailure(e)) {
+                            return Flux.error(e);
+                        }
+                        routed.failover(candidates.get(index + 1), e);
+                        return stream(request, candidates, index + 1);
+                    });
+        });
+    }
+
+    public static class RoutedProvider {
+
+        @Getter
+        private final LlmProvider provider;
+        @Getter
+        private final UpstreamGuard guard;
+        private final Counter failoverCounter;
+
+        private double latencyMs;
+        private double errorRate;
+
+        RoutedProvider(LlmProvider provider, UpstreamGuard guard, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.guard = guard;
+            this.failoverCounter = Counter.builder("ai.provider.failover")
+                    .description("Переключения с провайдера на следующий после ошибки")
+                    .tag("provider", provider.getName())
+                    .register(meterRegistry);
+            Gauge.builder("ai.provider.latency.ewma.ms", this, RoutedProvider::getLatencyMs)
+                    .tag("provider", provider.getName())
+                    .register(meterRegistry);
+            Gauge.builder("ai.provider.error.rate", this, RoutedProvider::getErrorRate)
+                    .tag("provider", provider.getName())
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Меньше — лучше. Провайдер без замеров получает 0, чтобы его попробовали.
+         */
+        synchronized double score() {
+            return latencyMs * (1 + ERROR_PENALTY * errorRate);
+        }
+
+        synchronized void recordSuccess(long latencyNanos) {
+            double sample = latencyNanos / 1_000_000.0;
+            latencyMs = latencyMs == 0 ? sample : latencyMs + (sample - latencyMs) * LATENCY_SMOOTHING;
+            errorRate += (0 - errorRate) * ERROR_SMOOTHING;
+        }
+
+        synchronized void recordFailure(Throwable e) {
+            // Отказ самого UpstreamGuard уже учтён circuit breaker'ом, запрос до провайдера не дошёл
+            if (!(e instanceof AiUnavailableException) && UpstreamGuard.isUpstreamFailure(e)) {
+                errorRate += (1 - errorRate) * ERROR_SMOOTHING;
+            }
+        }
+
+        void failover(RoutedProvider next, Throwable e) {
+            failoverCounter.increment();
+            log.warn("Провайдер {} недоступен ({}), переключаюсь на {}",
+                    provider.getName(), e.getMessage(), next.getProvider().getName());
+        }
+
+        public synchronized double getLatencyMs() {
+            return latencyMs;
+        }
+
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+    }
+}
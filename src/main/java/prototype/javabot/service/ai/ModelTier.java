@@ -0,0 +1,36 @@
+package prototype.javabot.service.ai;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Параметры генерации для группы запросов: модель, лимит токенов ответа и температура.
+ * Пустые значения означают «как настроено у провайдера».
+ */
+@Value
+@Builder
+public class ModelTier {
+
+    public static final ModelTier DEFAULT = ModelTier.builder().name("default").build();
+
+    String name;
+    String model;
+    /**
+     * Модель для конкретного провайдера (имя провайдера → модель), если у провайдеров разные названия моделей.
+     */
+    @Singular
+    Map<String, String> providerModels;
+    Integer maxTokens;
+    Double temperature;
+
+    public String modelFor(String providerName, String defaultModel) {
+        String providerModel = providerModels.get(providerName);
+        if (providerModel != null && !providerModel.isBlank()) {
+            return providerModel;
+        }
+        return model != null && !model.isBlank() ? model : defaultModel;
+    }
+}
@@ -0,0 +1,113 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.ContentLength;
+import prototype.javabot.model.aiSettings.UserAiSetting;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таблица маршрутизации (тип контента, длина) → {@link ModelTier}.
+ * Короткие форматы (хештеги, заголовки) можно отправлять в маленькую быструю модель с жёстким лимитом ответа,
+ * длинные — в более крупную. Правила проверяются по порядку, первое совпавшее побеждает.
+ */
+@Slf4j
+public class ModelTiers {
+
+    private final List<Rule> rules;
+    /**
+     * Метрики регистрируются один раз на уровень: в горячем пути только поиск по имени уровня.
+     */
+    private final Map<String, TierMeters> meters;
+
+    public ModelTiers(List<Rule> rules, MeterRegistry meterRegistry) {
+        this.rules = List.copyOf(rules);
+        Map<String, TierMeters> tierMeters = new HashMap<>();
+        tierMeters.put(ModelTier.DEFAULT.getName(), new TierMeters(ModelTier.DEFAULT.getName(), meterRegistry));
+        rules.forEach(rule -> tierMeters.computeIfAbsent(rule.tier().getName(), name -> new TierMeters(name, meterRegistry)));
+        this.meters = Map.copyOf(tierMeters);
+        if (!rules.isEmpty()) {
+            log.info("Уровни моделей: {}", rules.stream().map(rule -> rule.tier().getName()).toList());
+        }
+    }
+
+    public static ModelTiers empty(MeterRegistry meterRegistry) {
+        return new ModelTiers(new ArrayList<>(), meterRegistry);
+    }
+
+    public ModelTier resolve(ContentType contentType, UserAiSetting aiSetting) {
+        ContentLength length = aiSetting != null ? aiSetting.getLength() : null;
+        for (Rule rule : rules) {
+            if (rule.matches(contentType, length)) {
+                return rule.tier();
+            }
+        }
+        return ModelTier.DEFAULT;
+    }
+
+    public void recordCompletion(ModelTier tier, long latencyNanos, CompletionUsage usage) {
+        TierMeters tierMeters = meters.get(tier.getName());
+        if (tierMeters == null) {
+            return;
+        }
+        tierMeters.latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        if (usage != null) {
+            tierMeters.promptTokens.increment(usage.promptTokens());
+            tierMeters.completionTokens.increment(usage.completionTokens());
+        }
+    }
+
+    private static final class TierMeters {
+
+        private final Timer latency;
+        private final Counter promptTokens;
+        private final Counter completionTokens;
+
+        TierMeters(String tier, MeterRegistry meterRegistry) {
+            this.latency = Timer.builder("ai.tier.latency")
+                    .description("Время генерации по уровням моделей")
+                    .tag("tier", tier)
+                    .publishPercentiles(0.5, 0.95)
+                    .register(meterRegistry);
+            this.promptTokens = tokenCounter(tier, "prompt", meterRegistry);
+            this.completionTokens = tokenCounter(tier, "completion", meterRegistry);
+        }
+
+        private static Counter tokenCounter(String tier, String kind, MeterRegistry meterRegistry) {
+            return Counter.builder("ai.tier.tokens")
+                    .description("Израсходованные токены по уровням моделей")
+                    .tag("tier", tier)
+                    .tag("kind", kind)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Пустой набор типов или длин означает «любые».
+     */
+    public record Rule(Set<ContentType> contentTypes, Set<ContentLength> lengths, ModelTier tier) {
+
+        public Rule {
+            if (tier.getName() == null || tier.getName().isBlank()) {
+                throw new IllegalArgumentException("У уровня модели должно быть имя");
+            }
+            contentTypes = contentTypes.isEmpty() ? Set.of() : EnumSet.copyOf(contentTypes);
+            lengths = lengths.isEmpty() ? Set.of() : EnumSet.copyOf(lengths);
+        }
+
+        boolean matches(ContentType contentType, ContentLength length) {
+            return (contentTypes.isEmpty() || contentTypes.contains(contentType))
+                    && (lengths.isEmpty() || lengths.contains(length));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package prototype.javabot.service.ai;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Любой сервис с OpenAI-совместимым /chat/completions: OpenRouter, OpenAI, локальный сервер и т.д.
+ */
+@Slf4j
+public class OpenAiCompatibleProvider implements LlmProvider {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    @Getter
+    private final String name;
+    private final WebClient webClient;
+    private final String apiKey;
+    @Getter
+    private final String model;
+
+    private final ChatRequestEncoder requestEncoder = new ChatRequestEncoder();
+    private final ChatResponseParser responseParser = new ChatResponseParser();
+
+    public OpenAiCompatibleProvider(String name, WebClient webClient, String apiKey, String model) {
+        this.name = name;
+        this.webClient = webClient;
+        this.apiKey = apiKey;
+        this.model = model;
+    }
+
+    @Override
+    public Mono<ChatCompletion> complete(ChatCompletionRequest request) {
+        return Mono.defer(() -> webClient.post()
+                        .uri("/chat/completions")
+                        .header("Authorization", "Bearer " + apiKey)
+                        .header("Content-Type", "application/json")
+                        .bodyValue(requestEncoder.encode(request, request.getTier().modelFor(name, model), false))
+                        .retrieve()
+                        .bodyToMono(DataBuffer.class))
+                .handle((body, sink) -> {
+                    try {
+                        sink.next(extractContent(body));
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    @Override
+    public Flux<ChatCompletion> stream(ChatCompletionRequest request) {
+        return Flux.defer(() -> webClient.post()
+                        .uri("/chat/completions")
+                        .header("Authorization", "Bearer " + apiKey)
+                        .header("Content-Type", "application/json")
+                        .header("Accept", "text/event-stream")
+                        .bodyValue(requestEncoder.encode(request, request.getTier().modelFor(name, model), true))
+                        .retrieve()
+                        .bodyToFlux(SSE_TYPE))
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data))
+                .handle((data, sink) -> {
+                    try {
+                        ChatCompletion delta = extractDelta(data);
+                        if (!delta.content().isEmpty() || delta.usage() != null) {
+                            sink.next(delta);
+                        }
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    private ChatCompletion extractDelta(String chunk) throws IOException {
+        ChatResponseParser.ChatResponse response = responseParser.parse(chunk, "delta");
+
+        if (response.error() != null) {
+            log.error("Ошибка API {} в потоке: {}", name, response.error());
+            throw new AiResponseException("Извините, произошла ошибка при обращении к AI: " + response.error());
+        }
+
+        return new ChatCompletion(response.content(), response.usage());
+    }
+
+    private ChatCompletion extractContent(DataBuffer body) throws IOException {
+        ChatResponseParser.ChatResponse response;
+        try (InputStream json = body.asInputStream(true)) {
+            response = responseParser.parse(json, "message");
+        }
+
+        if (response.error() != null) {
+            log.error("Ошибка API {}: {}", name, response.error());
+            throw new AiResponseException("Извините, произошла ошибка при обращении к AI: " + response.error());
+        }
+
+        if (!response.hasChoices()) {
+            log.error("Пустой ответ от API {}", name);
+            throw new AiResponseException("Извините получен пустой ответ от AI");
+        }
+
+        return new ChatCompletion(response.content(), response.usage());
+    }
+}
@@ -0,0 +1,147 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Защита вызовов одного AI-провайдера: circuit breaker + адаптивный лимит одновременных запросов + таймаут.
+ * Если вызов не разрешён, сразу возвращается {@link AiUnavailableException} без обращения к сети.
+ */
+@Slf4j
+public class UpstreamGuard {
+
+    static final String CIRCUIT_OPEN_MESSAGE = "⚠️ AI временно недоступен. Попробуйте через минуту.";
+    static final String OVERLOADED_MESSAGE = "⏳ Сейчас слишком много запросов к AI. Попробуйте через несколько секунд.";
+
+    @Getter
+    private final String name;
+    @Getter
+    private final AdaptiveConcurrencyLimiter limiter;
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+    private final Duration timeout;
+
+    private final Counter rejectedByLimiter;
+    private final Counter rejectedByCircuit;
+
+    public UpstreamGuard(String name, AdaptiveConcurrencyLimiter limiter, CircuitBreaker circuitBreaker,
+                         Duration timeout, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+        this.timeout = timeout;
+
+        Gauge.builder("ai.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Текущий адаптивный лимит одновременных запросов")
+                .tag("upstream", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.limiter.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("upstream", name)
+                .register(meterRegistry);
+        Gauge.builder("ai.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 - CLOSED, 1 - HALF_OPEN, 2 - OPEN")
+                .tag("upstream", name)
+                .register(meterRegistry);
+        this.rejectedByLimiter = Counter.builder("ai.guard.rejected")
+                .tag("upstream", name)
+                .tag("reason", "limit")
+                .register(meterRegistry);
+        this.rejectedByCircuit = Counter.builder("ai.guard.rejected")
+                .tag("upstream", name)
+                .tag("reason", "circuit_open")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            Permit permit = acquire();
+            return call.timeout(timeout)
+                    .doOnError(permit.error::set)
+                    .doFinally(permit::release);
+        });
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        return Flux.defer(() -> {
+            Permit permit = acquire();
+            return call.timeout(timeout)
+                    .doOnError(permit.error::set)
+                    .doFinally(permit::release);
+        });
+    }
+
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Есть ли запас для фоновых запросов: circuit breaker закрыт и занято меньше половины лимита.
+     */
+    public boolean hasSpareCapacity() {
+        return circuitBreaker.getState() == CircuitBreaker.State.CLOSED
+                && limiter.getInFlight() * 2 < limiter.getLimit();
+    }
+
+    private Permit acquire() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            rejectedByCircuit.increment();
+            throw new AiUnavailableException(CIRCUIT_OPEN_MESSAGE);
+        }
+        if (!limiter.tryAcquire()) {
+            circuitBreaker.onIgnore();
+            rejectedByLimiter.increment();
+            log.warn("Лимит одновременных запросов к {} исчерпан ({})", name, limiter.getLimit());
+            throw new AiUnavailableException(OVERLOADED_MESSAGE);
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    /**
+     * Ошибки клиента (4xx, кроме 429) не говорят о деградации провайдера.
+     */
+    static boolean isUpstreamFailure(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private class Permit {
+        private final long startedAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        Permit(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        void release(SignalType signal) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            Throwable failure = error.get();
+            if (signal == SignalType.ON_COMPLETE) {
+                limiter.onSuccess(System.nanoTime() - startedAt);
+                circuitBreaker.onSuccess();
+            } else if (signal == SignalType.ON_ERROR && failure != null && isUpstreamFailure(failure)) {
+                limiter.onDropped();
+                circuitBreaker.onError();
+            } else {
+                limiter.onIgnore();
+                circuitBreaker.onIgnore();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Создаёт {@link UpstreamGuard} с общими настройками ai.limiter.* и ai.circuit-breaker.*.
+ */
+@Component
+public class UpstreamGuardFactory {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.limiter.initial-limit:10}")
+    private int initialLimit;
+
+    @Value("${ai.limiter.min-limit:2}")
+    private int minLimit;
+
+    @Value("${ai.limiter.max-limit:50}")
+    private int maxLimit;
+
+    @Value("${ai.limiter.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${ai.limiter.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${ai.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${ai.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${ai.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    @Value("${ai.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${ai.request-timeout:60s}")
+    private Duration requestTimeout;
+
+    public UpstreamGuardFactory(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public UpstreamGuard create(String upstreamName) {
+        return new UpstreamGuard(
+                upstreamName,
+                new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, latencyTolerance),
+                new CircuitBreaker(failureRateThreshold, slidingWindowSize, minimumCalls,
+                        openDuration, halfOpenCalls, Clock.systemUTC()),
+                requestTimeout,
+                meterRegistry);
+    }
+}
@@ -0,0 +1,157 @@
+package prototype.javabot.service.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Буфер заранее сгенерированных вариантов: после успешного ответа в фоне готовятся ещё несколько вариантов,
+ * и «Сгенерировать еще раз» отдаёт следующий из них сразу, без ожидания AI.
+ * Варианты хранятся по чатам с TTL и ограничением числа чатов; буфер привязан к {@link GenerationKey},
+ * поэтому смена запроса, типа контента или настроек делает его недействительным.
+ * <p>
+ * Вариант хранится вместе с расходом токенов: в бюджет чата он засчитывается при выдаче, а не при генерации.
+ */
+@Slf4j
+@Component
+public class VariantBuffer {
+
+    @Getter
+    private final boolean enabled;
+    private final int variantsPerChat;
+    /**
+     * Минимальный остаток дневного бюджета чата, при котором ещё можно готовить варианты.
+     */
+    @Getter
+    private final long budgetReserve;
+    private final Cache<String, ChatVariants> buffers;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter generated;
+
+    public VariantBuffer(MeterRegistry meterRegistry,
+                         @Value("${ai.prefetch.enabled:false}") boolean enabled,
+                         @Value("${ai.prefetch.variants:2}") int variantsPerChat,
+                         @Value("${ai.prefetch.ttl:10m}") Duration ttl,
+                         @Value("${ai.prefetch.max-chats:1000}") long maxChats,
+                         @Value("${ai.prefetch.budget-reserve:4000}") long budgetReserve) {
+        this.enabled = enabled;
+        this.variantsPerChat = variantsPerChat;
+        this.budgetReserve = budgetReserve;
+        this.buffers = Caffeine.newBuilder()
+                .maximumSize(maxChats)
+                .expireAfterWrite(ttl)
+                .build();
+
+        this.hits = Counter.builder("ai.prefetch.served")
+                .description("Повторные генерации, обслуженные из буфера вариантов")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ai.prefetch.served")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.generated = Counter.builder("ai.prefetch.generated")
+                .description("Варианты, сгенерированные заранее")
+                .register(meterRegistry);
+        Gauge.builder("ai.prefetch.chats", buffers, Cache::estimatedSize)
+                .description("Чаты с буфером вариантов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return следующий готовый вариант для этого запроса или {@code null}
+     */
+    public ChatCompletion poll(GenerationRequest request) {
+        if (!enabled || request.getChatId() == null) {
+            return null;
+        }
+        ChatVariants variants = buffers.getIfPresent(request.getChatId());
+        ChatCompletion variant = variants != null && variants.key.equals(GenerationKey.of(request)) ? variants.poll() : null;
+        if (variant != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return variant;
+    }
+
+    /**
+     * Догенерирует недостающие варианты. Каждый вызов generator должен давать новый вариант (без кэша).
+     */
+    public void refill(GenerationRequest request, Supplier<Mono<ChatCompletion>> generator) {
+        if (!enabled || request.getChatId() == null) {
+            return;
+        }
+        GenerationKey key = GenerationKey.of(request);
+        ChatVariants variants = buffers.asMap().compute(request.getChatId(),
+                (chatId, existing) -> existing != null && existing.key.equals(key) ? existing : new ChatVariants(key));
+
+        int missing = variants.reserve(variantsPerChat);
+        for (int i = 0; i < missing; i++) {
+            generator.get()
+                    .doFinally(signal -> variants.release())
+                    .subscribe(variant -> {
+                        variants.offer(variant);
+                        generated.increment();
+                    }, e -> log.debug("Не удалось заранее сгенерировать вариант для {}: {}", request.getChatId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Сбрасывает буфер чата. Варианты, которые ещё генерируются, попадут в уже отвязанный буфер и потеряются.
+     */
+    public void invalidate(String chatId) {
+        buffers.invalidate(chatId);
+    }
+
+    int size(String chatId) {
+        ChatVariants variants = buffers.getIfPresent(chatId);
+        return variants != null ? variants.size() : 0;
+    }
+
+    private static class ChatVariants {
+
+        private final GenerationKey key;
+        private final Deque<ChatCompletion> ready = new ArrayDeque<>();
+        private int pending;
+
+        ChatVariants(GenerationKey key) {
+            this.key = key;
+        }
+
+        synchronized int reserve(int capacity) {
+            int missing = Math.max(0, capacity - ready.size() - pending);
+            pending += missing;
+            return missing;
+        }
+
+        synchronized void release() {
+            pending--;
+        }
+
+        synchronized void offer(ChatCompletion variant) {
+            ready.addLast(variant);
+        }
+
+        synchronized ChatCompletion poll() {
+            return ready.pollFirst();
+        }
+
+        synchronized int size() {
+            return ready.size();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Исходная схема таблицы идей. В БД, созданных Hibernate до появления миграций, таблица уже есть.
+create table if not exists content_idea (
+    id         bigint generated by default as identity primary key,
+    prompt     text,
+    response   text,
+    status     varchar(255),
+    created_at timestamp(6)
+);
@@ -0,0 +1,15 @@
+-- Расход токенов по чатам, дням и типам контента.
+-- Запросы без типа контента пишутся с content_type = 'NONE': NULL в уникальном ключе не совпадал бы сам с собой,
+-- и ON CONFLICT не склеивал бы такие строки.
+create table if not exists token_usage (
+    id                bigint generated by default as identity primary key,
+    chat_id           varchar(255) not null,
+    usage_date        date         not null,
+    content_type      varchar(255) not null,
+    prompt_tokens     bigint       not null,
+    completion_tokens bigint       not null,
+    requests          bigint       not null
+);
+
+create unique index if not exists uk_token_usage_chat_date_type on token_usage (chat_id, usage_date, content_type);
+create index if not exists idx_token_usage_date on token_usage (usage_date);
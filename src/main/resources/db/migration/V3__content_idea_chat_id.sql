@@ -0,0 +1,9 @@
+-- Владелец идеи: списки в боте строятся по чату.
+-- Заполнить колонку у существующих строк нельзя: до этой версии чат нигде не сохранялся.
+-- Решение: старые идеи остаются с chat_id = null — они доступны через REST (/api/ideas, /export),
+-- но не показываются в /list и фильтрах бота и не меняются кнопками бота.
+alter table content_idea add column if not exists chat_id varchar(255);
+
+create index if not exists idx_content_idea_chat_created on content_idea (chat_id, created_at);
+create index if not exists idx_content_idea_chat_status_created on content_idea (chat_id, status, created_at);
+create index if not exists idx_content_idea_created_id on content_idea (created_at, id);
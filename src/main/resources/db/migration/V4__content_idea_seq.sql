@@ -0,0 +1,9 @@
+-- Id идей выдаёт последовательность с шагом 50 (pooled-оптимизатор Hibernate, allocationSize = 50)
+-- вместо IDENTITY, чтобы INSERT'ы можно было группировать в JDBC batch.
+create sequence if not exists content_idea_seq start with 1 increment by 50;
+
+-- Сдвигаем последовательность за уже выданные IDENTITY id: иначе новые id совпадут со старыми.
+-- Hibernate берёт значения из диапазона (nextval - 50, nextval], поэтому запас — один шаг.
+select setval('content_idea_seq',
+              greatest((select coalesce(max(id), 0) from content_idea) + 50,
+                       (select last_value from content_idea_seq)));
@@ -0,0 +1,81 @@
+package prototype.javabot.bot.callback;
+
+import org.junit.jupiter.api.Test;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.aiSettings.ResponseLanguage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallbackDataTest {
+
+    @Test
+    void encode_ShouldRoundTripTypedArguments() {
+        // Given
+        String encoded = CallbackData.encode(CallbackAction.CHANGE_STATUS, 42L, IdeaStatus.IN_PROGRESS);
+
+        // When
+        CallbackData data = CallbackData.decode(encoded);
+
+        // Then
+        assertEquals("1:cs:42:IN_PROGRESS", encoded);
+        assertTrue(data.is(CallbackAction.CHANGE_STATUS));
+        assertEquals(2, data.argCount());
+        assertEquals(42L, data.longArg(0));
+        assertEquals(IdeaStatus.IN_PROGRESS, data.enumArg(1, IdeaStatus.class));
+    }
+
+    @Test
+    void decode_ShouldParseActionWithoutArguments() {
+        // When
+        CallbackData data = CallbackData.decode(CallbackData.encode(CallbackAction.BACK_TO_MAIN));
+
+        // Then
+        assertTrue(data.is(CallbackAction.BACK_TO_MAIN));
+        assertEquals(0, data.argCount());
+    }
+
+    @Test
+    void decode_ShouldUnderstandLegacyCallbacks() {
+        // When
+        CallbackData retry = CallbackData.decode("retry_generation");
+        CallbackData language = CallbackData.decode("lang_en");
+        CallbackData contentType = CallbackData.decode("content_reel");
+        CallbackData changeStatus = CallbackData.decode("change_status_42_IN_PROGRESS");
+        CallbackData deleteIdea = CallbackData.decode("delete_idea_7");
+
+        // Then
+        assertTrue(retry.is(CallbackAction.RETRY_GENERATION));
+        assertEquals(ResponseLanguage.ENGLISH, language.enumArg(0, ResponseLanguage.class));
+        assertEquals(ContentType.REEL, contentType.enumArg(0, ContentType.class));
+        assertEquals(42L, changeStatus.longArg(0));
+        assertEquals(IdeaStatus.IN_PROGRESS, changeStatus.enumArg(1, IdeaStatus.class));
+        assertEquals(7L, deleteIdea.longArg(0));
+    }
+
+    @Test
+    void decode_ShouldReturnNull_ForUnknownData() {
+        assertNull(CallbackData.decode("something_else"));
+        assertNull(CallbackData.decode("2:nc"));
+        assertNull(CallbackData.decode(null));
+    }
+
+    @Test
+    void encode_ShouldReject_WhenDataExceedsTelegramLimit() {
+        // Given
+        String longArgument = "x".repeat(CallbackData.MAX_BYTES);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> CallbackData.encode(CallbackAction.MANAGE_IDEA, longArgument));
+        assertThrows(IllegalArgumentException.class, () -> CallbackData.encode(CallbackAction.MANAGE_IDEA, "a:b"));
+    }
+
+    @Test
+    void arg_ShouldThrowIllegalArgument_WhenArgumentIsMissing() {
+        // Given
+        CallbackData data = CallbackData.decode(CallbackData.encode(CallbackAction.DELETE_IDEA));
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> data.longArg(0));
+    }
+}
@@ -0,0 +1,97 @@
+package prototype.javabot.bot.callback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость диспетчеризации нажатия в зависимости от числа зарегистрированных кнопок:
+ * {@link CallbackRouter} (разбор + таблица) против прежней цепочки startsWith/split("_").
+ * Время роутера не должно расти с {@code callbacks}, у цепочки оно растёт линейно.
+ * <p>
+ * Запуск: main из IDE или после {@code mvn test-compile}
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main CallbackRouterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallbackRouterBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"20", "200", "2000"})
+    private int callbacks;
+
+    private CallbackRouter<Blackhole> router;
+    private String[] encoded;
+
+    private List<String> legacyPrefixes;
+    private String[] legacy;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CallbackRouter.Builder<Blackhole> builder = CallbackRouter.builder();
+        legacyPrefixes = new ArrayList<>(callbacks);
+        for (int i = 0; i < callbacks; i++) {
+            builder.on("x" + i, (blackhole, data) -> blackhole.consume(data.longArg(0)));
+            legacyPrefixes.add("action_" + i + "_");
+        }
+        router = builder.build();
+
+        Random random = new Random(42);
+        encoded = new String[SAMPLES];
+        legacy = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int action = random.nextInt(callbacks);
+            long ideaId = random.nextInt(100_000);
+            encoded[i] = CallbackData.encode("x" + action, ideaId);
+            legacy[i] = "action_" + action + "_" + ideaId;
+        }
+    }
+
+    @Benchmark
+    public boolean router(Blackhole blackhole) throws Exception {
+        return router.dispatch(blackhole, encoded[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public boolean prefixChain(Blackhole blackhole) {
+        String data = legacy[next++ & (SAMPLES - 1)];
+        for (String prefix : legacyPrefixes) {
+            if (data.startsWith(prefix)) {
+                String[] parts = data.split("_");
+                blackhole.consume(Long.parseLong(parts[2]));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CallbackRouterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
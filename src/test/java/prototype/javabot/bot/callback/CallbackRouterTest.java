@@ -0,0 +1,52 @@
+package prototype.javabot.bot.callback;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallbackRouterTest {
+
+    @Test
+    void dispatch_ShouldCallRegisteredHandlerWithContextAndArguments() throws Exception {
+        // Given
+        List<String> calls = new ArrayList<>();
+        CallbackRouter<String> router = CallbackRouter.<String>builder()
+                .on(CallbackAction.DELETE_IDEA, (chatId, data) -> calls.add(chatId + ":" + data.longArg(0)))
+                .on(CallbackAction.HELP, (chatId, data) -> calls.add("help"))
+                .build();
+
+        // When
+        boolean handled = router.dispatch("chat", CallbackData.encode(CallbackAction.DELETE_IDEA, 5L));
+        boolean legacyHandled = router.dispatch("chat", "help");
+
+        // Then
+        assertTrue(handled);
+        assertTrue(legacyHandled);
+        assertEquals(List.of("chat:5", "help"), calls);
+    }
+
+    @Test
+    void dispatch_ShouldReturnFalse_WhenNoHandlerMatches() throws Exception {
+        // Given
+        CallbackRouter<String> router = CallbackRouter.<String>builder()
+                .on(CallbackAction.HELP, (chatId, data) -> { })
+                .build();
+
+        // When / Then
+        assertFalse(router.dispatch("chat", CallbackData.encode(CallbackAction.NEW_CONTENT)));
+        assertFalse(router.dispatch("chat", "garbage"));
+    }
+
+    @Test
+    void builder_ShouldRejectDuplicateRegistration() {
+        // Given
+        CallbackRouter.Builder<String> builder = CallbackRouter.<String>builder()
+                .on(CallbackAction.HELP, (chatId, data) -> { });
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> builder.on(CallbackAction.HELP, (chatId, data) -> { }));
+    }
+}
@@ -0,0 +1,137 @@
+package prototype.javabot.bot.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedSerialExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KeyedSerialExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new KeyedSerialExecutor("test", 4, 100, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void execute_ShouldKeepOrder_ForSameKey() throws InterruptedException {
+        // Given
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(50);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            int value = i;
+            executor.execute("chat-1", () -> {
+                processed.add(value);
+                done.countDown();
+            });
+        }
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, processed.get(i));
+        }
+    }
+
+    @Test
+    void execute_ShouldNotBlockOtherKeys_WhenOneKeyIsBusy() throws InterruptedException {
+        // Given
+        String slowKey = "slow";
+        String fastKey = findKeyOnOtherWorker(slowKey);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+
+        // When
+        executor.execute(slowKey, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(fastKey, fastDone::countDown);
+
+        // Then
+        assertTrue(fastDone.await(2, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void execute_ShouldRejectTask_WhenQueueIsFull() throws InterruptedException {
+        // Given
+        KeyedSerialExecutor small = new KeyedSerialExecutor("small", 1, 1, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        small.execute("chat", () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        // When
+        boolean queued = small.execute("chat", () -> { });
+        boolean rejected = small.execute("chat", () -> { });
+
+        // Then
+        assertTrue(queued);
+        assertFalse(rejected);
+        assertEquals(1, small.getQueueDepth(0));
+        assertEquals(1.0, meterRegistry.get("bot.dispatcher.queue.depth")
+                .tag("executor", "small").gauge().value());
+
+        release.countDown();
+        small.shutdown(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void execute_ShouldRecordQueueWaitAndExecution() throws InterruptedException {
+        // Given
+        CountDownLatch done = new CountDownLatch(3);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            executor.execute("chat-1", done::countDown);
+        }
+
+        // Then
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        executor.shutdown(Duration.ofSeconds(1));
+        assertEquals(3, meterRegistry.get("bot.dispatcher.queue.wait")
+                .tag("executor", "test").timer().count());
+        assertEquals(3, meterRegistry.get("bot.dispatcher.execution")
+                .tag("executor", "test").timer().count());
+    }
+
+    private String findKeyOnOtherWorker(String key) {
+        int worker = executor.workerIndex(key);
+        for (int i = 0; ; i++) {
+            String candidate = "chat-" + i;
+            if (executor.workerIndex(candidate) != worker) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package prototype.javabot.bot.dispatch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpdateDispatcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UpdateDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new UpdateDispatcher(meterRegistry, 1, 10, 1, 1, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void dispatch_ShouldRunInteractiveTask_WhenAiLaneIsSaturated() throws InterruptedException {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch aiStarted = new CountDownLatch(1);
+        dispatcher.dispatch(Lane.AI, "chat", () -> {
+            aiStarted.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(aiStarted.await(2, TimeUnit.SECONDS));
+        assertTrue(dispatcher.dispatch(Lane.AI, "chat", () -> { }));
+        CountDownLatch menuDone = new CountDownLatch(1);
+
+        // When
+        boolean aiAccepted = dispatcher.dispatch(Lane.AI, "chat", () -> { });
+        boolean menuAccepted = dispatcher.dispatch(Lane.INTERACTIVE, "chat", menuDone::countDown);
+
+        // Then
+        assertFalse(aiAccepted);
+        assertTrue(menuAccepted);
+        assertTrue(menuDone.await(2, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("bot.dispatcher.rejected").tag("lane", "ai").counter().count());
+        assertEquals(0.0, meterRegistry.get("bot.dispatcher.rejected").tag("lane", "interactive").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void scheduler_ShouldDeliverSignalsOnLaneWorker() {
+        // When / Then
+        StepVerifier.create(Flux.just(1, 2, 3)
+                        .publishOn(dispatcher.scheduler(Lane.PERSISTENCE, "chat"))
+                        .map(value -> Thread.currentThread().getName().startsWith("bot-persistence") ? value : -1))
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+    }
+
+    @Test
+    void scheduler_ShouldFailStream_WhenLaneQueueIsFull() throws InterruptedException {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch aiStarted = new CountDownLatch(1);
+        dispatcher.dispatch(Lane.AI, "chat", () -> {
+            aiStarted.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(aiStarted.await(2, TimeUnit.SECONDS));
+        dispatcher.dispatch(Lane.AI, "chat", () -> { });
+
+        // When / Then
+        StepVerifier.create(Flux.just(1).publishOn(dispatcher.scheduler(Lane.AI, "chat")))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+        release.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package prototype.javabot.bot.outbound;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboundMessageQueueTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AbsSender sender;
+    private OutboundMessageQueue queue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        sender = mock(AbsSender.class);
+        when(sender.executeAsync(anyMethod()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(new Message()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void submit_ShouldDelayMessage_WhenChatLimitIsReached() throws Exception {
+        // Given
+        queue = createQueue(30, 30, 1, 1, 100);
+
+        // When
+        CompletableFuture<Message> first = queue.submit("chat-1", new SendMessage("chat-1", "1"), OutboundPriority.INTERACTIVE);
+        CompletableFuture<Message> second = queue.submit("chat-1", new SendMessage("chat-1", "2"), OutboundPriority.INTERACTIVE);
+        CompletableFuture<Message> otherChat = queue.submit("chat-2", new SendMessage("chat-2", "3"), OutboundPriority.INTERACTIVE);
+
+        // Then
+        first.get(1, TimeUnit.SECONDS);
+        otherChat.get(1, TimeUnit.SECONDS);
+        assertFalse(second.isDone());
+        second.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void submit_ShouldCoalesceQueuedEditsOfSameMessage() throws Exception {
+        // Given
+        queue = createQueue(30, 30, 1, 1, 100);
+        queue.submit("chat", new SendMessage("chat", "✍️"), OutboundPriority.INTERACTIVE).get(1, TimeUnit.SECONDS);
+
+        // When
+        List<CompletableFuture<Serializable>> edits = List.of(
+                queue.submit("chat", edit("a"), OutboundPriority.BULK),
+                queue.submit("chat", edit("ab"), OutboundPriority.BULK),
+                queue.submit("chat", edit("abc"), OutboundPriority.BULK));
+
+        // Then
+        CompletableFuture.allOf(edits.toArray(CompletableFuture[]::new)).get(2, TimeUnit.SECONDS);
+        ArgumentCaptor<EditMessageText> sentEdits = ArgumentCaptor.forClass(EditMessageText.class);
+        verify(sender, times(2)).executeAsync(anyMethod());
+        verify(sender).executeAsync(sentEdits.capture());
+        assertEquals("abc", sentEdits.getValue().getText());
+        assertEquals(2.0, meterRegistry.get("telegram.outbound.coalesced").counter().count());
+        assertEquals(0, queue.getPending());
+    }
+
+    @Test
+    void submit_ShouldRetryAfterDelay_WhenTelegramReturns429() throws Exception {
+        // Given
+        queue = createQueue(30, 30, 30, 30, 100);
+        TelegramApiRequestException tooManyRequests = new TelegramApiRequestException("Too Many Requests",
+                new ObjectMapper().readValue("""
+                        {"ok": false, "error_code": 429, "description": "Too Many Requests",
+                         "parameters": {"retry_after": 1}}
+                        """, ApiResponse.class));
+        when(sender.executeAsync(anyMethod()))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(tooManyRequests))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(new Message()));
+        long startedAt = System.nanoTime();
+
+        // When
+        CompletableFuture<Message> result = queue.submit("chat", new SendMessage("chat", "hi"), OutboundPriority.INTERACTIVE);
+
+        // Then
+        assertNotNull(result.get(3, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(900));
+        verify(sender, times(2)).executeAsync(anyMethod());
+        assertEquals(1.0, meterRegistry.get("telegram.outbound.throttled").counter().count());
+    }
+
+    @Test
+    void submit_ShouldCompleteEdit_WhenMessageIsNotModified() throws Exception {
+        // Given
+        queue = createQueue(30, 30, 30, 30, 100);
+        TelegramApiRequestException notModified = new TelegramApiRequestException("Error editing message text",
+                new ObjectMapper().readValue("""
+                        {"ok": false, "error_code": 400,
+                         "description": "Bad Request: message is not modified"}
+                        """, ApiResponse.class));
+        when(sender.executeAsync(anyMethod()))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(notModified));
+
+        // When
+        CompletableFuture<Serializable> result = queue.submit("chat", edit("same"), OutboundPriority.INTERACTIVE);
+
+        // Then
+        assertNull(result.get(1, TimeUnit.SECONDS));
+        assertEquals(0.0, meterRegistry.get("telegram.outbound.failed").counter().count());
+    }
+
+    @Test
+    void submit_ShouldSendCallbackAnswerFirst_WhenGlobalLimitIsExhausted() throws Exception {
+        // Given
+        queue = createQueue(1, 1, 30, 30, 100);
+        queue.submit("chat-1", new SendMessage("chat-1", "1"), OutboundPriority.BULK).get(1, TimeUnit.SECONDS);
+        CompletableFuture<Message> bulk = queue.submit("chat-2", new SendMessage("chat-2", "2"), OutboundPriority.BULK);
+
+        // When
+        CompletableFuture<Boolean> answer = queue.submit("chat-2",
+                AnswerCallbackQuery.builder().callbackQueryId("42").build(), OutboundPriority.CALLBACK_ANSWER);
+
+        // Then
+        answer.get(1, TimeUnit.SECONDS);
+        assertFalse(bulk.isDone());
+        bulk.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void submit_ShouldReject_WhenQueueIsFull() throws Exception {
+        // Given
+        queue = createQueue(30, 30, 1, 1, 1);
+        when(sender.executeAsync(anyMethod())).thenReturn(new CompletableFuture<>());
+        queue.submit("chat", new SendMessage("chat", "1"), OutboundPriority.INTERACTIVE);
+
+        // When
+        CompletableFuture<Message> rejected = queue.submit("chat", new SendMessage("chat", "2"), OutboundPriority.INTERACTIVE);
+
+        // Then
+        Exception e = assertThrows(Exception.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1.0, meterRegistry.get("telegram.outbound.rejected").counter().count());
+    }
+
+    private OutboundMessageQueue createQueue(double globalRate, int globalBurst, double chatRate, int chatBurst, int maxPending) {
+        OutboundMessageQueue outboundQueue = new OutboundMessageQueue(meterRegistry,
+                globalRate, globalBurst, chatRate, chatBurst, maxPending, 3);
+        outboundQueue.start(sender);
+        return outboundQueue;
+    }
+
+    private static EditMessageText edit(String text) {
+        return EditMessageText.builder().chatId("chat").messageId(7).text(text).build();
+    }
+
+    /**
+     * Типизированный any(): с any(BotApiMethod.class) вызов executeAsync становится unchecked.
+     */
+    private static BotApiMethod<Serializable> anyMethod() {
+        return any();
+    }
+}
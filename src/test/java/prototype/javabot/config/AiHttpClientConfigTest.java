@@ -0,0 +1,88 @@
+package prototype.javabot.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+class AiHttpClientConfigTest {
+
+    private final AiHttpClientConfig config = new AiHttpClientConfig();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fast", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // Имитация зависшего upstream: соединение принято, ответа нет
+        server.createContext("/hung", exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        AiProperties properties = new AiProperties();
+        properties.getHttp().setResponseTimeout(Duration.ofMillis(300));
+        properties.getHttp().setMaxConnections(2);
+        properties.getHttp().setMetrics(false);
+
+        connectionProvider = config.aiConnectionProvider(properties);
+        HttpClient httpClient = config.aiHttpClient(connectionProvider, properties);
+        webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        connectionProvider.dispose();
+        server.stop(0);
+    }
+
+    @Test
+    void httpClient_ShouldReturnResponse_FromPooledConnection() {
+        // When & Then
+        StepVerifier.create(webClient.get().uri("/fast").retrieve().bodyToMono(String.class))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    @Test
+    void httpClient_ShouldFailFast_WhenUpstreamHangs() {
+        // When & Then: ответ обрывается по response-timeout, а не висит бесконечно
+        StepVerifier.create(webClient.get().uri("/hung").retrieve().bodyToMono(String.class))
+                .expectErrorMatches(e -> e.getCause() instanceof ReadTimeoutException || e instanceof ReadTimeoutException)
+                .verify(Duration.ofSeconds(5));
+    }
+}
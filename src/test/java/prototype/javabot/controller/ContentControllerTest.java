@@ -0,0 +1,142 @@
+package prototype.javabot.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaPage;
+import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.service.ContentService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class ContentControllerTest {
+
+    @Mock
+    private ContentService contentService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        mockMvc = MockMvcBuilders.standaloneSetup(new ContentController(contentService, objectMapper)).build();
+    }
+
+    @Test
+    void getPage_ShouldPassFiltersAndCursor() throws Exception {
+        // Given
+        when(contentService.findPage("123", IdeaStatus.DRAFT, "abc", 20)).thenReturn(new IdeaPage(List.of(), "next"));
+
+        // When / Then
+        mockMvc.perform(get("/api/ideas")
+                        .param("chatId", "123").param("status", "DRAFT")
+                        .param("cursor", "abc").param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void getPage_ShouldReturnBadRequest_WhenCursorIsMalformed() throws Exception {
+        // Given
+        when(contentService.findPage(null, null, "broken", 50)).thenThrow(new IllegalArgumentException("Некорректный курсор"));
+
+        // When / Then
+        mockMvc.perform(get("/api/ideas").param("cursor", "broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_ShouldStreamOneIdeaPerLine() throws Exception {
+        // Given
+        when(contentService.export(eq(null), eq(null), any())).thenAnswer(invocation -> {
+            Consumer<ContentIdea> sink = invocation.getArgument(2);
+            sink.accept(ContentIdea.builder().id(1L).prompt("first").build());
+            sink.accept(ContentIdea.builder().id(2L).prompt("second").build());
+            return 2L;
+        });
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/ideas/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"prompt\":\"first\""));
+        assertTrue(lines[1].contains("\"prompt\":\"second\""));
+    }
+
+    @Test
+    void updateStatuses_ShouldReturnAffectedCount() throws Exception {
+        // Given
+        when(contentService.updateStatuses(Set.of(1L, 2L, 3L), IdeaStatus.PUBLISHED)).thenReturn(2);
+
+        // When / Then
+        mockMvc.perform(put("/api/ideas/status").param("ids", "1,2,3").param("status", "PUBLISHED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(3))
+                .andExpect(jsonPath("$.updated").value(2));
+    }
+
+    @Test
+    void updateStatus_ShouldReturnUpdatedIdea() throws Exception {
+        // Given
+        ContentIdea idea = ContentIdea.builder().id(42L).prompt("p").status(IdeaStatus.PUBLISHED).build();
+        when(contentService.updateStatus(42L, IdeaStatus.PUBLISHED)).thenReturn(Optional.of(idea));
+
+        // When / Then
+        mockMvc.perform(put("/api/ideas/42/status").param("status", "PUBLISHED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(42))
+                .andExpect(jsonPath("$.status").value("PUBLISHED"));
+    }
+
+    @Test
+    void updateStatus_ShouldReturnNotFound_WhenNothingUpdated() throws Exception {
+        // Given
+        when(contentService.updateStatus(42L, IdeaStatus.DRAFT)).thenReturn(Optional.empty());
+
+        // When / Then
+        mockMvc.perform(put("/api/ideas/42/status").param("status", "DRAFT"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void delete_ShouldReturnNoContent_WhenDeleted() throws Exception {
+        // Given
+        when(contentService.delete(7L)).thenReturn(true);
+
+        // When / Then
+        mockMvc.perform(delete("/api/ideas/7"))
+                .andExpect(status().isNoContent());
+    }
+}
@@ -0,0 +1,90 @@
+package prototype.javabot.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import prototype.javabot.bot.TelegramBot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class TelegramWebhookControllerTest {
+
+    private static final String UPDATE_JSON = """
+            {"update_id": 42,
+             "message": {"message_id": 1, "date": 1700000000, "text": "/start",
+                         "chat": {"id": 100, "type": "private"}}}
+            """;
+
+    @Mock
+    private TelegramBot bot;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new TelegramWebhookController(bot, "secret"))
+                .addPlaceholderValue("telegram.bot.webhook.path", "/telegram/webhook")
+                .build();
+    }
+
+    @Test
+    void onUpdate_ShouldPassUpdateToBot_WhenSecretMatches() throws Exception {
+        // When
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(TelegramWebhookController.SECRET_TOKEN_HEADER, "secret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE_JSON))
+                .andExpect(status().isOk());
+
+        // Then
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(bot).onUpdateReceived(captor.capture());
+        assertEquals(42, captor.getValue().getUpdateId());
+        assertEquals("/start", captor.getValue().getMessage().getText());
+    }
+
+    @Test
+    void onUpdate_ShouldRejectUpdate_WhenSecretIsWrong() throws Exception {
+        // When
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(TelegramWebhookController.SECRET_TOKEN_HEADER, "wrong")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE_JSON))
+                .andExpect(status().isForbidden());
+
+        // Then
+        verify(bot, never()).onUpdateReceived(any());
+    }
+
+    @Test
+    void onUpdate_ShouldRejectUpdate_WhenSecretHeaderIsMissing() throws Exception {
+        // When
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE_JSON))
+                .andExpect(status().isForbidden());
+
+        // Then
+        verify(bot, never()).onUpdateReceived(any());
+    }
+
+    @Test
+    void constructor_ShouldFail_WhenSecretIsBlank() {
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> new TelegramWebhookController(bot, " "));
+    }
+}
@@ -0,0 +1,202 @@
+package prototype.javabot.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaCursor;
+import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ContentIdeaRepositoryTest {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    @Autowired
+    private ContentIdeaRepository repository;
+
+    @Test
+    void findByChatId_ShouldReturnNewestIdeasOfChatOnly() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            repository.save(idea("chat-1", "idea " + i, IdeaStatus.DRAFT, now.minusMinutes(i)));
+        }
+        repository.save(idea("chat-2", "foreign", IdeaStatus.DRAFT, now.plusMinutes(1)));
+
+        // When
+        List<IdeaSummary> result = repository.findSummariesByChatId("chat-1", Limit.of(3));
+
+        // Then
+        assertEquals(List.of("idea 0", "idea 1", "idea 2"), result.stream().map(IdeaSummary::promptPreview).toList());
+    }
+
+    @Test
+    void findSummariesByChatId_ShouldOrderByIdDesc_WhenCreatedAtTies() {
+        // Given
+        LocalDateTime sameTime = LocalDateTime.of(2025, 1, 1, 12, 0);
+        Long first = repository.save(idea("chat-1", "first", IdeaStatus.DRAFT, sameTime)).getId();
+        Long second = repository.save(idea("chat-1", "second", IdeaStatus.DRAFT, sameTime)).getId();
+
+        // When
+        List<IdeaSummary> result = repository.findSummariesByChatId("chat-1", Limit.of(10));
+
+        // Then
+        assertEquals(List.of(second, first), result.stream().map(IdeaSummary::id).toList());
+    }
+
+    @Test
+    void findByChatIdAndStatus_ShouldFilterByStatus() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        repository.save(idea("chat-1", "draft", IdeaStatus.DRAFT, now));
+        repository.save(idea("chat-1", "published", IdeaStatus.PUBLISHED, now.minusMinutes(1)));
+
+        // When
+        List<IdeaSummary> result = repository.findSummariesByChatIdAndStatus("chat-1", IdeaStatus.PUBLISHED, Limit.of(10));
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("published", result.get(0).promptPreview());
+        assertEquals(IdeaStatus.PUBLISHED, result.get(0).status());
+    }
+
+    @Test
+    void findSummaryByIdAndChatId_ShouldTruncatePromptInDatabase() {
+        // Given
+        ContentIdea saved = repository.save(idea("chat-1", "x".repeat(500), IdeaStatus.DRAFT, LocalDateTime.now()));
+
+        // When
+        IdeaSummary summary = repository.findSummaryByIdAndChatId(saved.getId(), "chat-1").orElseThrow();
+
+        // Then
+        assertEquals(IdeaSummary.PREVIEW_LENGTH, summary.promptPreview().length());
+        assertEquals("x".repeat(50) + "...", summary.shortPrompt(50, true));
+        assertEquals("x".repeat(20), summary.shortPrompt(20, false));
+    }
+
+    @Test
+    void findSummaryByIdAndChatId_ShouldNotFindOtherChatsIdea() {
+        // Given
+        ContentIdea saved = repository.save(idea("chat-1", "idea", IdeaStatus.DRAFT, LocalDateTime.now()));
+
+        // When & Then
+        assertTrue(repository.findSummaryByIdAndChatId(saved.getId(), "chat-2").isEmpty());
+    }
+
+    @Test
+    void updateStatusByIdAndChatId_ShouldTouchOnlyOwnIdea() {
+        // Given
+        ContentIdea saved = repository.save(idea("chat-1", "idea", IdeaStatus.DRAFT, LocalDateTime.now()));
+
+        // When
+        int foreign = repository.updateStatusByIdAndChatId(saved.getId(), "chat-2", IdeaStatus.PUBLISHED);
+        int own = repository.updateStatusByIdAndChatId(saved.getId(), "chat-1", IdeaStatus.PUBLISHED);
+
+        // Then
+        assertEquals(0, foreign);
+        assertEquals(1, own);
+        assertEquals(IdeaStatus.PUBLISHED, repository.findSummaryByIdAndChatId(saved.getId(), "chat-1").orElseThrow().status());
+    }
+
+    @Test
+    void updateStatusById_ShouldLetNextReadSeeNewStatus() {
+        // Given
+        ContentIdea saved = repository.save(idea("chat-1", "idea", IdeaStatus.DRAFT, LocalDateTime.now()));
+
+        // When
+        repository.updateStatusById(saved.getId(), IdeaStatus.PUBLISHED);
+
+        // Then
+        assertEquals(IdeaStatus.PUBLISHED, repository.findById(saved.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void updateStatusByIdIn_ShouldReturnAffectedRows() {
+        // Given
+        Long first = repository.save(idea("chat-1", "a", IdeaStatus.DRAFT, LocalDateTime.now())).getId();
+        Long second = repository.save(idea("chat-1", "b", IdeaStatus.DRAFT, LocalDateTime.now())).getId();
+
+        // When
+        int updated = repository.updateStatusByIdIn(List.of(first, second, -1L), IdeaStatus.IN_PROGRESS);
+
+        // Then
+        assertEquals(2, updated);
+    }
+
+    @Test
+    void deleteIdeaByIdAndChatId_ShouldReturnZero_WhenIdeaBelongsToAnotherChat() {
+        // Given
+        Long id = repository.save(idea("chat-1", "idea", IdeaStatus.DRAFT, LocalDateTime.now())).getId();
+
+        // When / Then
+        assertEquals(0, repository.deleteIdeaByIdAndChatId(id, "chat-2"));
+        assertEquals(1, repository.deleteIdeaByIdAndChatId(id, "chat-1"));
+        assertEquals(0, repository.deleteIdeaById(id));
+    }
+
+    @Test
+    void findBy_ShouldWalkPagesByKeyset_WhenCreatedAtTies() {
+        // Given
+        LocalDateTime sameTime = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            repository.save(idea("chat-1", "idea " + i, IdeaStatus.DRAFT, sameTime));
+        }
+
+        // When
+        List<ContentIdea> firstPage = repository.findBy(ContentIdeaSpecifications.forPage("chat-1", null, null),
+                query -> query.sortBy(NEWEST_FIRST).limit(3).all());
+        IdeaCursor cursor = IdeaCursor.after(firstPage.get(2));
+        List<ContentIdea> secondPage = repository.findBy(ContentIdeaSpecifications.forPage("chat-1", null, cursor),
+                query -> query.sortBy(NEWEST_FIRST).limit(3).all());
+
+        // Then
+        assertEquals(3, firstPage.size());
+        assertEquals(2, secondPage.size());
+        assertTrue(secondPage.stream().allMatch(idea -> idea.getId() < cursor.id()));
+    }
+
+    @Test
+    void streamAll_ShouldApplyOptionalExportFilters() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        repository.save(idea("chat-1", "draft", IdeaStatus.DRAFT, now));
+        repository.save(idea("chat-1", "published", IdeaStatus.PUBLISHED, now));
+        repository.save(idea("chat-2", "foreign", IdeaStatus.DRAFT, now));
+
+        // When
+        List<String> all;
+        List<String> chatDrafts;
+        try (Stream<ContentIdea> stream = repository.streamAll(ContentIdeaSpecifications.forExport(null, null), NEWEST_FIRST)) {
+            all = stream.map(ContentIdea::getPrompt).toList();
+        }
+        try (Stream<ContentIdea> stream = repository.streamAll(ContentIdeaSpecifications.forExport("chat-1", IdeaStatus.DRAFT), NEWEST_FIRST)) {
+            chatDrafts = stream.map(ContentIdea::getPrompt).toList();
+        }
+
+        // Then
+        assertEquals(List.of("foreign", "published", "draft"), all);
+        assertEquals(List.of("draft"), chatDrafts);
+    }
+
+    private static ContentIdea idea(String chatId, String prompt, IdeaStatus status, LocalDateTime createdAt) {
+        return ContentIdea.builder()
+                .chatId(chatId)
+                .prompt(prompt)
+                .response("response")
+                .status(status)
+                .createdAt(createdAt)
+                .build();
+    }
+}
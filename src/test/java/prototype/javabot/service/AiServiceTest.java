@@ -1,16 +1,41 @@
 package prototype.javabot.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.WebClient;
 import prototype.javabot.model.ContentType;
 import prototype.javabot.model.aiSettings.UserAiSetting;
+import prototype.javabot.service.ai.AdaptiveConcurrencyLimiter;
+import prototype.javabot.service.ai.AiResponseException;
+import prototype.javabot.service.ai.CircuitBreaker;
+import prototype.javabot.service.ai.CompletionUsage;
+import prototype.javabot.service.ai.FairGenerationScheduler;
+import prototype.javabot.service.ai.GenerationCache;
+import prototype.javabot.service.ai.GenerationRequest;
+import prototype.javabot.service.ai.GenerationSingleFlight;
+import prototype.javabot.service.ai.HedgingPolicy;
+import prototype.javabot.service.ai.LlmRouter;
+import prototype.javabot.service.ai.ModelTiers;
+import prototype.javabot.service.ai.OpenAiCompatibleProvider;
+import prototype.javabot.service.ai.UpstreamGuard;
+import prototype.javabot.service.ai.VariantBuffer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -34,20 +59,33 @@ class AiServiceTest {
     @Mock
     private WebClient.ResponseSpec responseSpec;
 
+    @Mock
+    private TokenUsageService tokenUsageService;
+
     private AiService aiService;
-    private ObjectMapper objectMapper;
+    private GenerationCache generationCache;
+    private SimpleMeterRegistry meterRegistry;
+    private LlmRouter llmRouter;
+    private HedgingPolicy hedgingPolicy;
+    private GenerationSingleFlight singleFlight;
+    private FairGenerationScheduler fairScheduler;
 
     @BeforeEach
     void setUp() {
-        // Создаем реальный AiService
-        aiService = new AiService();
-        objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
+
+        // Провайдер работает через замоканный WebClient с тестовыми ключом и моделью
+        OpenAiCompatibleProvider provider = new OpenAiCompatibleProvider("test", webClient, "test-api-key", "test-model");
+        llmRouter = new LlmRouter(List.of(provider), name -> new UpstreamGuard(name,
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 0.9, 2.0),
+                new CircuitBreaker(50, 10, 10, Duration.ofSeconds(30), 1, Clock.systemUTC()),
+                Duration.ofSeconds(5), meterRegistry), meterRegistry);
 
-        // Устанавливаем тестовые значения через рефлексию
-        ReflectionTestUtils.setField(aiService, "apiKey", "test-api-key");
-        ReflectionTestUtils.setField(aiService, "model", "test-model");
-        ReflectionTestUtils.setField(aiService, "webClient", webClient);
-        ReflectionTestUtils.setField(aiService, "objectMapper", objectMapper);
+        generationCache = new GenerationCache(meterRegistry, true, 100, Duration.ofMinutes(10));
+        singleFlight = new GenerationSingleFlight(meterRegistry, true);
+        fairScheduler = new FairGenerationScheduler(meterRegistry, true, 10, 2, 20, Map.of());
+        hedgingPolicy = new HedgingPolicy(meterRegistry, false, 0.95, Duration.ofSeconds(2), 20, 200, 0.1);
+        aiService = createAiService(variantBuffer(false, 0));
 
         // Настраиваем цепочку моков WebClient
         when(webClient.post()).thenReturn(requestBodyUriSpec);
@@ -73,8 +111,8 @@ class AiServiceTest {
             }
             """.formatted(expectedResponse);
 
-        when(responseSpec.bodyToMono(String.class))
-                .thenReturn(Mono.just(mockApiResponse));
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody(mockApiResponse));
 
         // When
         String result = aiService.askAi(userMessage);
@@ -107,8 +145,8 @@ class AiServiceTest {
             }
             """.formatted(expectedResponse);
 
-        when(responseSpec.bodyToMono(String.class))
-                .thenReturn(Mono.just(mockApiResponse));
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody(mockApiResponse));
 
         // When
         String result = aiService.askAiWithSettings(userMessage, contentType, settings);
@@ -132,8 +170,8 @@ class AiServiceTest {
             }
             """.formatted(errorMessage);
 
-        when(responseSpec.bodyToMono(String.class))
-                .thenReturn(Mono.just(mockErrorResponse));
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody(mockErrorResponse));
 
         // When
         String result = aiService.askAi(userMessage);
@@ -153,8 +191,8 @@ class AiServiceTest {
             }
             """;
 
-        when(responseSpec.bodyToMono(String.class))
-                .thenReturn(Mono.just(emptyResponse));
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody(emptyResponse));
 
         // When
         String result = aiService.askAi(userMessage);
@@ -168,7 +206,7 @@ class AiServiceTest {
         // Given
         String userMessage = "Test";
 
-        when(responseSpec.bodyToMono(String.class))
+        when(responseSpec.bodyToMono(DataBuffer.class))
                 .thenReturn(Mono.error(new RuntimeException("Network error")));
 
         // When
@@ -177,4 +215,263 @@ class AiServiceTest {
         // Then
         assertTrue(result.contains("Извините") || result.contains("ошибка"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void askAiWithSettingsAsync_ShouldEmitContent_WithoutBlocking() {
+        // Given
+        String expectedResponse = "Async content";
+
+        String mockApiResponse = """
+            {
+                "choices": [{
+                    "message": {
+                        "content": "%s"
+                    }
+                }]
+            }
+            """.formatted(expectedResponse);
+
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody(mockApiResponse));
+
+        // When & Then
+        StepVerifier.create(aiService.askAiWithSettingsAsync("Test", ContentType.REEL, UserAiSetting.getDefault()))
+                .expectNext(expectedResponse)
+                .verifyComplete();
+    }
+
+    @Test
+    void askAiWithSettingsAsync_ShouldEmitErrorText_WhenApiFails() {
+        // Given
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(Mono.error(new RuntimeException("Network error")));
+
+        // When & Then
+        StepVerifier.create(aiService.askAiWithSettingsAsync("Test", null, null))
+                .assertNext(result -> assertTrue(result.contains("Извините")))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAiWithSettings_ShouldEmitDeltas_UntilDone() {
+        // Given
+        Flux<ServerSentEvent<String>> events = Flux.just(
+                ServerSentEvent.<String>builder().comment("OPENROUTER PROCESSING").build(),
+                ServerSentEvent.builder("{\"choices\":[{\"delta\":{\"content\":\"Привет\"}}]}").build(),
+                ServerSentEvent.builder("{\"choices\":[{\"delta\":{\"content\":\", мир\"}}]}").build(),
+                ServerSentEvent.builder("[DONE]").build(),
+                ServerSentEvent.builder("{\"choices\":[{\"delta\":{\"content\":\"лишнее\"}}]}").build()
+        );
+
+        when(responseSpec.bodyToFlux(any(ParameterizedTypeReference.class)))
+                .thenReturn(events);
+
+        // When & Then
+        StepVerifier.create(aiService.streamAiWithSettings("Test", ContentType.POST, UserAiSetting.getDefault()))
+                .expectNext("Привет", ", мир")
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAiWithSettings_ShouldFailWithUserMessage_WhenApiReturnsError() {
+        // Given
+        when(responseSpec.bodyToFlux(any(ParameterizedTypeReference.class)))
+                .thenReturn(Flux.just(ServerSentEvent.builder("{\"error\":{\"message\":\"Rate limit\"}}").build()));
+
+        // When & Then
+        StepVerifier.create(aiService.streamAiWithSettings("Test", null, null))
+                .expectErrorSatisfies(e -> {
+                    assertInstanceOf(AiResponseException.class, e);
+                    assertTrue(e.getMessage().contains("Rate limit"));
+                })
+                .verify();
+    }
+
+    @Test
+    void generate_ShouldServeRepeatedRequestFromCache() {
+        // Given
+        String mockApiResponse = """
+            {
+                "choices": [{
+                    "message": {
+                        "content": "Cached content"
+                    }
+                }]
+            }
+            """;
+
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody(mockApiResponse));
+
+        // When
+        String first = aiService.askAiWithSettings("Мотивация к  спорту", ContentType.POST, UserAiSetting.getDefault());
+        String second = aiService.askAiWithSettings("  мотивация к спорту ", ContentType.POST, UserAiSetting.getDefault());
+
+        // Then
+        assertEquals("Cached content", first);
+        assertEquals("Cached content", second);
+        verify(webClient, times(1)).post();
+        assertEquals(0.5, generationCache.getHitRatio());
+    }
+
+    @Test
+    void generate_ShouldBypassCache_ForFreshVariant() {
+        // Given
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Первый\"}}]}"))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Второй\"}}]}"));
+
+        GenerationRequest retry = GenerationRequest.builder()
+                .prompt("Тема")
+                .contentType(ContentType.TITLE)
+                .freshVariant(true)
+                .build();
+
+        // When
+        String first = aiService.askAiWithContentType("Тема", ContentType.TITLE);
+        String second = aiService.generate(retry).block();
+
+        // Then
+        assertEquals("Первый", first);
+        assertEquals("Второй", second);
+        verify(webClient, times(2)).post();
+    }
+
+    @Test
+    void generate_ShouldNotCacheErrors() {
+        // Given
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(Mono.error(new RuntimeException("Network error")))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"OK\"}}]}"));
+
+        // When
+        String first = aiService.askAi("Test");
+        String second = aiService.askAi("Test");
+
+        // Then
+        assertTrue(first.contains("Извините"));
+        assertEquals("OK", second);
+    }
+
+    @Test
+    void generate_ShouldServeRetryFromPrefetchedVariant() {
+        // Given
+        aiService = createAiService(variantBuffer(true, 1));
+        when(tokenUsageService.hasBudgetFor("42", 1000)).thenReturn(true);
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Первый\"}}]}"))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Заготовка\"}}],"
+                        + "\"usage\":{\"prompt_tokens\":7,\"completion_tokens\":3}}"))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Следующая\"}}]}"));
+
+        GenerationRequest request = GenerationRequest.builder()
+                .prompt("Тема")
+                .contentType(ContentType.POST)
+                .chatId("42")
+                .build();
+        GenerationRequest retry = request.toBuilder().freshVariant(true).build();
+
+        // When
+        String first = aiService.generate(request).block();
+        String second = aiService.generate(retry).block();
+
+        // Then: второй ответ взят из буфера, буфер сразу пополнен следующим вариантом
+        assertEquals("Первый", first);
+        assertEquals("Заготовка", second);
+        verify(webClient, times(3)).post();
+    }
+
+    @Test
+    void generate_ShouldChargePrefetchedVariant_OnlyWhenServed() {
+        // Given
+        aiService = createAiService(variantBuffer(true, 1));
+        when(tokenUsageService.hasBudgetFor("42", 1000)).thenReturn(true, false);
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Первый\"}}],"
+                        + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":5}}"))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Заготовка\"}}],"
+                        + "\"usage\":{\"prompt_tokens\":7,\"completion_tokens\":3}}"));
+
+        GenerationRequest request = GenerationRequest.builder()
+                .prompt("Тема")
+                .contentType(ContentType.POST)
+                .chatId("42")
+                .build();
+
+        // When: заготовка уже готова, но ещё не выдана
+        aiService.generate(request).block();
+
+        // Then
+        verify(tokenUsageService).record("42", ContentType.POST, new CompletionUsage(10, 5));
+        verify(tokenUsageService, never()).record("42", ContentType.POST, new CompletionUsage(7, 3));
+
+        // When: заготовку выдали, а новую не готовим — бюджет на исходе
+        String second = aiService.generate(request.toBuilder().freshVariant(true).build()).block();
+
+        // Then
+        assertEquals("Заготовка", second);
+        verify(tokenUsageService).record("42", ContentType.POST, new CompletionUsage(7, 3));
+        verify(webClient, times(2)).post();
+    }
+
+    @Test
+    void generate_ShouldSkipPrefetch_WhenBudgetIsNearlySpent() {
+        // Given
+        aiService = createAiService(variantBuffer(true, 2));
+        when(tokenUsageService.hasBudgetFor("42", 1000)).thenReturn(false);
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"Первый\"}}]}"));
+
+        GenerationRequest request = GenerationRequest.builder()
+                .prompt("Тема")
+                .contentType(ContentType.POST)
+                .chatId("42")
+                .build();
+
+        // When
+        String result = aiService.generate(request).block();
+
+        // Then
+        assertEquals("Первый", result);
+        verify(webClient, times(1)).post();
+    }
+
+    @Test
+    void generate_ShouldRecordTokenUsage_ForChat() {
+        // Given
+        when(responseSpec.bodyToMono(DataBuffer.class))
+                .thenReturn(jsonBody("{\"choices\":[{\"message\":{\"content\":\"OK\"}}],"
+                        + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":5}}"));
+
+        GenerationRequest request = GenerationRequest.builder()
+                .prompt("Тема")
+                .contentType(ContentType.HASHTAGS)
+                .chatId("42")
+                .build();
+
+        // When
+        String result = aiService.generate(request).block();
+
+        // Then
+        assertEquals("OK", result);
+        verify(tokenUsageService).record("42", ContentType.HASHTAGS, new CompletionUsage(10, 5));
+    }
+
+    private static Mono<DataBuffer> jsonBody(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return Mono.fromSupplier(() -> DefaultDataBufferFactory.sharedInstance.wrap(bytes));
+    }
+
+    /**
+     * Свой реестр на каждый буфер: тесты пересоздают буфер, а gauge с тем же именем повторно не регистрируется.
+     */
+    private static VariantBuffer variantBuffer(boolean enabled, int variants) {
+        return new VariantBuffer(new SimpleMeterRegistry(), enabled, variants, Duration.ofMinutes(10), 100, 1000);
+    }
+
+    private AiService createAiService(VariantBuffer variantBuffer) {
+        return new AiService(generationCache, singleFlight, hedgingPolicy,
+                llmRouter, ModelTiers.empty(meterRegistry), variantBuffer, tokenUsageService,
+                fairScheduler);
+    }
+}
@@ -1,19 +1,30 @@
 package prototype.javabot.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import prototype.javabot.model.ContentIdea;
+import prototype.javabot.model.IdeaCursor;
+import prototype.javabot.model.IdeaPage;
 import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
 import prototype.javabot.repository.ContentIdeaRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,6 +36,12 @@ class ContentServiceTest {
     @Mock
     private ContentIdeaRepository repository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private IdeaCache ideaCache = new IdeaCache(new SimpleMeterRegistry(), true, 100, 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private ContentService contentService;
 
@@ -50,7 +67,7 @@ class ContentServiceTest {
         when(repository.save(any(ContentIdea.class))).thenReturn(testIdea);
 
         // When
-        ContentIdea result = contentService.save(prompt, response);
+        ContentIdea result = contentService.save("123", prompt, response);
 
         // Then
         assertNotNull(result);
@@ -59,111 +76,216 @@ class ContentServiceTest {
         assertEquals(testIdea.getResponse(), result.getResponse());
         assertEquals(IdeaStatus.DRAFT, result.getStatus());
 
-        verify(repository).save(any(ContentIdea.class));
+        verify(repository).save(argThat(idea -> "123".equals(idea.getChatId())));
     }
 
     @Test
-    void findAll_ShouldReturnAllIdeas() {
+    void save_ShouldKeepCreatedAtAndDropStaleId_WhenSavingQueuedIdea() {
         // Given
-        List<ContentIdea> expectedIdeas = Arrays.asList(testIdea);
-        when(repository.findAll()).thenReturn(expectedIdeas);
+        LocalDateTime generatedAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        ContentIdea queued = ContentIdea.builder()
+                .id(77L)
+                .chatId("123")
+                .prompt("p")
+                .response("r")
+                .status(IdeaStatus.DRAFT)
+                .createdAt(generatedAt)
+                .build();
+        when(repository.save(any(ContentIdea.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
-        List<ContentIdea> result = contentService.findAll();
+        ContentIdea result = contentService.save(queued);
 
         // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(testIdea.getId(), result.get(0).getId());
-
-        verify(repository).findAll();
+        assertNull(result.getId());
+        assertEquals(generatedAt, result.getCreatedAt());
+        assertEquals("p", result.getPrompt());
     }
 
     @Test
-    void findById_ShouldReturnIdea_WhenExists() {
+    void save_ShouldRetryWithTruncatedText_KeepingCreatedAt() {
         // Given
-        Long ideaId = 1L;
-        when(repository.findById(ideaId)).thenReturn(Optional.of(testIdea));
+        LocalDateTime generatedAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        ContentIdea queued = ContentIdea.builder()
+                .chatId("123")
+                .prompt("p".repeat(5000))
+                .response("r")
+                .status(IdeaStatus.DRAFT)
+                .createdAt(generatedAt)
+                .build();
+        when(repository.save(any(ContentIdea.class)))
+                .thenThrow(new DataIntegrityViolationException("too long"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
-        ContentIdea result = contentService.findById(ideaId);
+        ContentIdea result = contentService.save(queued);
 
         // Then
-        assertNotNull(result);
-        assertEquals(testIdea.getId(), result.getId());
+        assertEquals(4003, result.getPrompt().length());
+        assertEquals(generatedAt, result.getCreatedAt());
+    }
+
+    @Test
+    void findRecent_ShouldQueryChatIdeasWithLimit() {
+        // Given
+        IdeaSummary summary = new IdeaSummary(1L, IdeaStatus.DRAFT, LocalDateTime.now(), "Test prompt");
+        when(repository.findSummariesByChatId("123", Limit.of(10))).thenReturn(List.of(summary));
+
+        // When
+        List<IdeaSummary> result = contentService.findRecent("123", 10);
 
-        verify(repository).findById(ideaId);
+        // Then
+        assertEquals(List.of(summary), result);
+        verify(repository, never()).findAll();
     }
 
     @Test
-    void findById_ShouldReturnNull_WhenNotExists() {
+    void findRecentByStatus_ShouldQueryChatIdeasByStatusWithLimit() {
         // Given
-        Long ideaId = 999L;
-        when(repository.findById(ideaId)).thenReturn(Optional.empty());
+        IdeaSummary summary = new IdeaSummary(1L, IdeaStatus.DRAFT, LocalDateTime.now(), "Test prompt");
+        when(repository.findSummariesByChatIdAndStatus("123", IdeaStatus.DRAFT, Limit.of(10)))
+                .thenReturn(List.of(summary));
 
         // When
-        ContentIdea result = contentService.findById(ideaId);
+        List<IdeaSummary> result = contentService.findRecentByStatus("123", IdeaStatus.DRAFT, 10);
 
         // Then
-        assertNull(result);
+        assertEquals(List.of(summary), result);
+    }
+
+    @Test
+    void findRecent_ShouldServeRepeatedCallsFromCache_UntilStatusChanges() {
+        // Given
+        IdeaSummary summary = new IdeaSummary(1L, IdeaStatus.DRAFT, LocalDateTime.now(), "Test prompt");
+        when(repository.findSummariesByChatId("123", Limit.of(10))).thenReturn(List.of(summary));
+        when(repository.updateStatusByIdAndChatId(1L, "123", IdeaStatus.PUBLISHED)).thenReturn(1);
 
-        verify(repository).findById(ideaId);
+        // When
+        contentService.findRecent("123", 10);
+        contentService.findRecent("123", 10);
+        contentService.updateStatus("123", 1L, IdeaStatus.PUBLISHED);
+        contentService.findRecent("123", 10);
+
+        // Then
+        verify(repository, times(2)).findSummariesByChatId("123", Limit.of(10));
     }
 
     @Test
-    void updateStatus_ShouldChangeIdeaStatus() {
+    void findPage_ShouldReturnCursorOfLastItem_WhenMoreRowsExist() {
         // Given
-        Long ideaId = 1L;
-        IdeaStatus newStatus = IdeaStatus.PUBLISHED;
-
-        ContentIdea updatedIdea = ContentIdea.builder()
-                .id(ideaId)
-                .prompt(testIdea.getPrompt())
-                .response(testIdea.getResponse())
-                .status(newStatus)
-                .createdAt(testIdea.getCreatedAt())
-                .build();
+        LocalDateTime now = LocalDateTime.now();
+        List<ContentIdea> rows = List.of(
+                ContentIdea.builder().id(3L).createdAt(now).build(),
+                ContentIdea.builder().id(2L).createdAt(now.minusMinutes(1)).build(),
+                ContentIdea.builder().id(1L).createdAt(now.minusMinutes(2)).build());
+        when(repository.findBy(any(Specification.class), any())).thenReturn(rows);
 
-        when(repository.findById(ideaId)).thenReturn(Optional.of(testIdea));
-        when(repository.save(any(ContentIdea.class))).thenReturn(updatedIdea);
+        // When
+        IdeaPage page = contentService.findPage("123", null, null, 2);
+
+        // Then
+        assertEquals(List.of(3L, 2L), page.items().stream().map(ContentIdea::getId).toList());
+        assertEquals(new IdeaCursor(now.minusMinutes(1), 2L), IdeaCursor.decode(page.nextCursor()));
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    void findPage_ShouldReturnNoCursor_OnLastPage() {
+        // Given
+        when(repository.findBy(any(Specification.class), any())).thenReturn(List.of(testIdea));
 
         // When
-        ContentIdea result = contentService.updateStatus(ideaId, newStatus);
+        IdeaPage page = contentService.findPage(null, IdeaStatus.DRAFT, null, 50);
 
         // Then
-        assertNotNull(result);
-        assertEquals(newStatus, result.getStatus());
+        assertEquals(List.of(testIdea), page.items());
+        assertNull(page.nextCursor());
+    }
 
-        verify(repository).findById(ideaId);
-        verify(repository).save(any(ContentIdea.class));
+    @Test
+    void findPage_ShouldRejectMalformedCursor() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> contentService.findPage(null, null, "not-a-cursor", 10));
+        verifyNoInteractions(repository);
     }
 
     @Test
-    void updateStatus_ShouldThrowException_WhenIdeaNotFound() {
+    void export_ShouldPassEachIdeaToSinkAndDetachIt() {
         // Given
-        Long ideaId = 999L;
-        IdeaStatus newStatus = IdeaStatus.PUBLISHED;
+        ContentIdea second = ContentIdea.builder().id(2L).build();
+        when(repository.streamAll(any(), any())).thenReturn(Stream.of(testIdea, second));
+        List<ContentIdea> exported = new ArrayList<>();
 
-        when(repository.findById(ideaId)).thenReturn(Optional.empty());
+        // When
+        long count = contentService.export("123", null, exported::add);
 
-        // When & Then
-        assertThrows(RuntimeException.class, () -> {
-            contentService.updateStatus(ideaId, newStatus);
-        });
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of(testIdea, second), exported);
+        verify(entityManager).detach(testIdea);
+        verify(entityManager).detach(second);
+    }
 
-        verify(repository).findById(ideaId);
+    @Test
+    void updateStatus_ShouldUpdateWithSingleStatement_AndReturnUpdatedIdea() {
+        // Given
+        when(repository.updateStatusById(1L, IdeaStatus.PUBLISHED)).thenReturn(1);
+        when(repository.findById(1L)).thenReturn(Optional.of(testIdea));
+
+        // When
+        Optional<ContentIdea> result = contentService.updateStatus(1L, IdeaStatus.PUBLISHED);
+
+        // Then
+        assertEquals(Optional.of(testIdea), result);
         verify(repository, never()).save(any());
     }
 
     @Test
-    void delete_ShouldCallRepositoryDelete() {
+    void updateStatus_ShouldReturnEmpty_WhenIdeaNotFound() {
+        // Given
+        when(repository.updateStatusById(999L, IdeaStatus.PUBLISHED)).thenReturn(0);
+
+        // When
+        Optional<ContentIdea> result = contentService.updateStatus(999L, IdeaStatus.PUBLISHED);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void updateStatus_ShouldBeScopedToChat() {
+        // Given
+        when(repository.updateStatusByIdAndChatId(1L, "other", IdeaStatus.IN_PROGRESS)).thenReturn(0);
+
+        // When
+        boolean result = contentService.updateStatus("other", 1L, IdeaStatus.IN_PROGRESS);
+
+        // Then
+        assertFalse(result);
+        verify(repository, never()).updateStatusById(any(), any());
+    }
+
+    @Test
+    void updateStatuses_ShouldSkipQuery_WhenIdsAreEmpty() {
+        // When
+        int updated = contentService.updateStatuses(List.of(), IdeaStatus.PUBLISHED);
+
+        // Then
+        assertEquals(0, updated);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void delete_ShouldDeleteWithSingleStatement() {
         // Given
-        Long ideaId = 1L;
+        when(repository.deleteIdeaByIdAndChatId(1L, "123")).thenReturn(1);
 
         // When
-        contentService.delete(ideaId);
+        boolean result = contentService.delete("123", 1L);
 
         // Then
-        verify(repository).deleteById(ideaId);
+        assertTrue(result);
+        verify(repository, never()).deleteById(any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package prototype.javabot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import prototype.javabot.model.ContentIdea;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ContentWriteBehindTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ContentService contentService = mock(ContentService.class);
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private ContentWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    void enqueue_ShouldFlushFullBatchWithoutWaitingForInterval() throws InterruptedException {
+        // Given
+        CountDownLatch flushed = recordBatches(1);
+        writeBehind = start(new ContentWriteBehind(contentService, meterRegistry, true, 100, 3, Duration.ofMinutes(1)));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writeBehind.enqueue("chat", "prompt " + i, "response"));
+        }
+
+        // Then
+        assertTrue(flushed.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(3), batchSizes);
+        // Таймер пишется после saveAll: дожидаемся завершения потока записи
+        writeBehind.shutdown();
+        assertEquals(1, meterRegistry.get("content.write_behind.flush").timer().count());
+    }
+
+    @Test
+    void enqueue_ShouldFlushPartialBatchAfterInterval() throws InterruptedException {
+        // Given
+        CountDownLatch flushed = recordBatches(1);
+        writeBehind = start(new ContentWriteBehind(contentService, meterRegistry, true, 100, 50, Duration.ofMillis(50)));
+
+        // When
+        writeBehind.enqueue("chat", "prompt", "response");
+
+        // Then
+        assertTrue(flushed.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1), batchSizes);
+    }
+
+    @Test
+    void shutdown_ShouldDrainPendingIdeas() {
+        // Given
+        recordBatches(1);
+        writeBehind = start(new ContentWriteBehind(contentService, meterRegistry, true, 100, 50, Duration.ofMinutes(1)));
+        for (int i = 0; i < 5; i++) {
+            writeBehind.enqueue("chat", "prompt " + i, "response");
+        }
+
+        // When
+        writeBehind.shutdown();
+
+        // Then
+        assertEquals(5, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, writeBehind.getPendingCount());
+        assertFalse(writeBehind.enqueue("chat", "late", "response"));
+    }
+
+    @Test
+    void flush_ShouldSaveOneByOne_WhenBatchFails() {
+        // Given
+        when(contentService.saveAll(anyList())).thenThrow(new RuntimeException("batch failed"));
+        writeBehind = start(new ContentWriteBehind(contentService, meterRegistry, true, 100, 50, Duration.ofMinutes(1)));
+        writeBehind.enqueue("chat", "first", "response");
+        writeBehind.enqueue("chat", "second", "response");
+
+        // When
+        writeBehind.shutdown();
+
+        // Then
+        ArgumentCaptor<ContentIdea> saved = ArgumentCaptor.forClass(ContentIdea.class);
+        verify(contentService, times(2)).save(saved.capture());
+        assertEquals(List.of("first", "second"), saved.getAllValues().stream().map(ContentIdea::getPrompt).toList());
+        assertTrue(saved.getAllValues().stream().allMatch(idea -> idea.getCreatedAt() != null));
+        verify(contentService, never()).save(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void start_ShouldBeginFlushing_OnlyAfterBeanIsInitialized() throws InterruptedException {
+        // Given
+        CountDownLatch flushed = recordBatches(1);
+        writeBehind = new ContentWriteBehind(contentService, meterRegistry, true, 100, 1, Duration.ofMillis(10));
+        writeBehind.enqueue("chat", "prompt", "response");
+
+        // When
+        assertFalse(flushed.await(100, TimeUnit.MILLISECONDS));
+        writeBehind.start();
+
+        // Then
+        assertTrue(flushed.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void enqueue_ShouldReturnFalse_WhenDisabled() {
+        // Given
+        ContentWriteBehind disabled = new ContentWriteBehind(contentService, meterRegistry, false, 1, 50, Duration.ofMinutes(1));
+
+        // When / Then
+        assertFalse(disabled.enqueue("chat", "prompt", "response"));
+        verifyNoInteractions(contentService);
+    }
+
+    private static ContentWriteBehind start(ContentWriteBehind writeBehind) {
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private CountDownLatch recordBatches(int expected) {
+        CountDownLatch latch = new CountDownLatch(expected);
+        when(contentService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ContentIdea> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            latch.countDown();
+            return batch;
+        });
+        return latch;
+    }
+}
@@ -0,0 +1,112 @@
+package prototype.javabot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import prototype.javabot.model.IdeaStatus;
+import prototype.javabot.model.IdeaSummary;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdeaCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdeaSummary summary = new IdeaSummary(1L, IdeaStatus.DRAFT, LocalDateTime.now(), "prompt");
+
+    @Test
+    void getSummary_ShouldLoadOnce_AndCountHitsAndMisses() {
+        // Given
+        IdeaCache cache = new IdeaCache(meterRegistry, true, 100, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        cache.getSummary("chat", 1L, () -> { loads.incrementAndGet(); return summary; });
+        IdeaSummary result = cache.getSummary("chat", 1L, () -> { loads.incrementAndGet(); return summary; });
+
+        // Then
+        assertSame(summary, result);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("content.cache.gets").tag("cache", "idea").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("content.cache.gets").tag("cache", "idea").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void getList_ShouldKeepSeparateEntriesPerStatus_AndDropThemOnChatInvalidation() {
+        // Given
+        IdeaCache cache = new IdeaCache(meterRegistry, true, 100, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        cache.getList("chat", null, 10, () -> { loads.incrementAndGet(); return List.of(summary); });
+        cache.getList("chat", IdeaStatus.DRAFT, 10, () -> { loads.incrementAndGet(); return List.of(summary); });
+        cache.getList("other", null, 10, () -> { loads.incrementAndGet(); return List.of(); });
+
+        // When
+        cache.invalidateChat("chat");
+        cache.getList("chat", null, 10, () -> { loads.incrementAndGet(); return List.of(); });
+        cache.getList("other", null, 10, () -> { loads.incrementAndGet(); return List.of(); });
+
+        // Then
+        assertEquals(4, loads.get());
+        assertEquals(1.0, meterRegistry.get("content.cache.gets").tag("cache", "list").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void invalidate_ShouldDropSummaryOfChangedIdea() {
+        // Given
+        IdeaCache cache = new IdeaCache(meterRegistry, true, 100, 100, Duration.ofMinutes(1));
+        cache.getSummary("chat", 1L, () -> summary);
+        IdeaSummary published = new IdeaSummary(1L, IdeaStatus.PUBLISHED, summary.createdAt(), "prompt");
+
+        // When
+        cache.invalidate("chat", 1L);
+        IdeaSummary result = cache.getSummary("chat", 1L, () -> published);
+
+        // Then
+        assertSame(published, result);
+    }
+
+    @Test
+    void getSummary_ShouldNotServeCachedIdea_ToOtherChat() {
+        // Given
+        IdeaCache cache = new IdeaCache(meterRegistry, true, 100, 100, Duration.ofMinutes(1));
+        cache.getSummary("chat", 1L, () -> summary);
+
+        // When
+        IdeaSummary result = cache.getSummary("other", 1L, () -> null);
+
+        // Then
+        assertNull(result);
+    }
+
+    @Test
+    void invalidateIdeas_ShouldDropSummary_WithoutKnowingChat() {
+        // Given
+        IdeaCache cache = new IdeaCache(meterRegistry, true, 100, 100, Duration.ofMinutes(1));
+        cache.getSummary("chat", 1L, () -> summary);
+        IdeaSummary published = new IdeaSummary(1L, IdeaStatus.PUBLISHED, summary.createdAt(), "prompt");
+
+        // When
+        cache.invalidateIdeas(List.of(1L));
+        IdeaSummary result = cache.getSummary("chat", 1L, () -> published);
+
+        // Then
+        assertSame(published, result);
+    }
+
+    @Test
+    void getList_ShouldAlwaysLoad_WhenDisabled() {
+        // Given
+        IdeaCache cache = new IdeaCache(meterRegistry, false, 100, 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        cache.getList("chat", null, 10, () -> { loads.incrementAndGet(); return List.of(summary); });
+        cache.getList("chat", null, 10, () -> { loads.incrementAndGet(); return List.of(summary); });
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+}
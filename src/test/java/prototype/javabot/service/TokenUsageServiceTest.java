@@ -0,0 +1,155 @@
+package prototype.javabot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.TokenUsage;
+import prototype.javabot.repository.TokenUsageRepository;
+import prototype.javabot.service.ai.CompletionUsage;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenUsageServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    @Mock
+    private TokenUsageRepository repository;
+
+    private TokenUsageService tokenUsageService;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2025-03-01T10:00:00Z"), ZoneOffset.UTC);
+        tokenUsageService = new TokenUsageService(repository, new SimpleMeterRegistry(), 100, clock);
+    }
+
+    @Test
+    void isOverBudget_ShouldTurnTrue_WhenDailyBudgetSpent() {
+        // Given
+        when(repository.sumTokens("42", TODAY)).thenReturn(0L);
+
+        // When
+        tokenUsageService.record("42", ContentType.POST, new CompletionUsage(40, 30));
+        boolean afterFirst = tokenUsageService.isOverBudget("42");
+        tokenUsageService.record("42", ContentType.POST, new CompletionUsage(20, 10));
+
+        // Then
+        assertFalse(afterFirst);
+        assertTrue(tokenUsageService.isOverBudget("42"));
+        assertEquals(100, tokenUsageService.getTodayTokens("42"));
+    }
+
+    @Test
+    void isOverBudget_ShouldCountUsageSavedBeforeRestart() {
+        // Given
+        when(repository.sumTokens("42", TODAY)).thenReturn(150L);
+
+        // When & Then
+        assertTrue(tokenUsageService.isOverBudget("42"));
+        verify(repository, times(1)).sumTokens("42", TODAY);
+    }
+
+    @Test
+    void flush_ShouldUpsertEachKeyOnce() {
+        // Given
+        tokenUsageService.record("42", ContentType.POST, new CompletionUsage(10, 20));
+        tokenUsageService.record("42", ContentType.POST, new CompletionUsage(1, 2));
+        tokenUsageService.record("7", null, new CompletionUsage(3, 4));
+
+        // When
+        tokenUsageService.flush();
+        tokenUsageService.flush();
+
+        // Then: второй сброс без новых данных в БД не ходит
+        verify(repository, times(1)).addUsage("42", TODAY, "POST", 11, 22, 2);
+        verify(repository, times(1)).addUsage("7", TODAY, TokenUsage.NO_CONTENT_TYPE, 3, 4, 1);
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void flush_ShouldKeepCounters_WhenDatabaseFails() {
+        // Given
+        when(repository.addUsage(any(), any(), any(), anyLong(), anyLong(), anyLong()))
+                .thenThrow(new RuntimeException("DB down"));
+        when(repository.findByChatIdAndUsageDate("42", TODAY)).thenReturn(List.of());
+        tokenUsageService.record("42", ContentType.TITLE, new CompletionUsage(10, 5));
+
+        // When
+        tokenUsageService.flush();
+
+        // Then
+        TokenUsageService.ChatUsage usage = tokenUsageService.getTodayUsage("42");
+        assertEquals(15, usage.totalTokens());
+        assertEquals(1, usage.requests());
+        assertEquals(15L, usage.tokensByType().get(ContentType.TITLE));
+    }
+
+    @Test
+    void flush_ShouldPersistPreviousDayOnce_AfterDateRollover() {
+        // Given
+        MutableClock clock = new MutableClock(Instant.parse("2025-03-01T23:59:59Z"));
+        TokenUsageService service = new TokenUsageService(repository, new SimpleMeterRegistry(), 100, clock);
+        service.record("42", ContentType.POST, new CompletionUsage(10, 20));
+        clock.instant = Instant.parse("2025-03-02T00:00:01Z");
+
+        // When
+        service.flush();
+        service.flush();
+        service.record("42", ContentType.POST, new CompletionUsage(1, 2));
+        service.flush();
+
+        // Then
+        verify(repository, times(1)).addUsage("42", TODAY, "POST", 10, 20, 1);
+        verify(repository, times(1)).addUsage("42", TODAY.plusDays(1), "POST", 1, 2, 1);
+    }
+
+    @Test
+    void contentTypeColumn_ShouldMapMissingTypeToSentinel() {
+        // Given
+        TokenUsage.ContentTypeColumnConverter converter = new TokenUsage.ContentTypeColumnConverter();
+
+        // When & Then
+        assertEquals(TokenUsage.NO_CONTENT_TYPE, converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(TokenUsage.NO_CONTENT_TYPE));
+        assertEquals(ContentType.REEL, converter.convertToEntityAttribute("REEL"));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package prototype.javabot.service.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение прежней сериализации запроса и разбора ответа (Map.of + ObjectMapper, String + readTree)
+ * с {@link ChatRequestEncoder} и {@link ChatResponseParser}. Главная метрика — gc.alloc.rate.norm (байт на операцию).
+ * <p>
+ * Запуск: main из IDE или после {@code mvn test-compile}
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main ChatCodecBenchmark -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatCodecBenchmark {
+
+    private static final String SYSTEM_PROMPT = "Ты эксперт по созданию вирусного контента для социальных сетей. "
+            + "Создавай посты, которые вызывают эмоции, содержат призыв к действию и подходят для Instagram, VK, Telegram. "
+            + "Отвечай на русском языке. Создавай средний контент (3-4 абзаца, 200-400 слов). Общайся дружелюбно.";
+    private static final String USER_PROMPT = "Создай увлекательный пост для социальных сетей на тему: мотивация к спорту";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatRequestEncoder encoder = new ChatRequestEncoder();
+    private final ChatResponseParser parser = new ChatResponseParser();
+
+    private ChatCompletionRequest request;
+    private byte[] responseBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        request = ChatCompletionRequest.builder()
+                .systemPrompt(SYSTEM_PROMPT)
+                .userPrompt(USER_PROMPT)
+                .build();
+        String content = "Каждое утро — это новый шанс стать сильнее. ".repeat(40);
+        responseBody = objectMapper.writeValueAsBytes(Map.of(
+                "id", "gen-123",
+                "model", "mistralai/mistral-7b-instruct",
+                "choices", List.of(Map.of(
+                        "index", 0,
+                        "finish_reason", "stop",
+                        "message", Map.of("role", "assistant", "content", content))),
+                "usage", Map.of("prompt_tokens", 120, "completion_tokens", 480, "total_tokens", 600)));
+    }
+
+    @Benchmark
+    public byte[] encodeWithMaps() throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of(
+                "model", "mistralai/mistral-7b-instruct",
+                "stream", false,
+                "messages", List.of(
+                        Map.of("role", "system", "content", request.getSystemPrompt()),
+                        Map.of("role", "user", "content", request.getUserPrompt()))));
+    }
+
+    @Benchmark
+    public byte[] encodeWithPrefix() {
+        return encoder.encode(request, "mistralai/mistral-7b-instruct", false);
+    }
+
+    @Benchmark
+    public String parseWithTree() throws IOException {
+        // Прежний путь: тело целиком в String, затем полное дерево JsonNode
+        JsonNode root = objectMapper.readTree(new String(responseBody, StandardCharsets.UTF_8));
+        return root.at("/choices/0/message/content").asText();
+    }
+
+    @Benchmark
+    public String parseStreaming() throws IOException {
+        return parser.parse(new ByteArrayInputStream(responseBody), "message").content();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChatCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
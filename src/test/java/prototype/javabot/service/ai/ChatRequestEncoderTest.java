@@ -0,0 +1,59 @@
+package prototype.javabot.service.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRequestEncoderTest {
+
+    private final ChatRequestEncoder encoder = new ChatRequestEncoder();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void encode_ShouldProduceSameJsonAsMapSerialization() throws Exception {
+        // Given
+        ModelTier tier = ModelTier.builder().name("short").maxTokens(300).temperature(0.8).build();
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .systemPrompt("Ты эксперт по хештегам.")
+                .userPrompt("Тема с \"кавычками\", \\ слэшем\nи переводом строки, \u0001 управляющим символом и эмодзи 🚀")
+                .tier(tier)
+                .build();
+
+        // When
+        JsonNode encoded = objectMapper.readTree(encoder.encode(request, "small-model", true));
+
+        // Then
+        JsonNode expected = objectMapper.valueToTree(Map.of(
+                "model", "small-model",
+                "stream", true,
+                "stream_options", Map.of("include_usage", true),
+                "max_tokens", 300,
+                "temperature", 0.8,
+                "messages", List.of(
+                        Map.of("role", "system", "content", request.getSystemPrompt()),
+                        Map.of("role", "user", "content", request.getUserPrompt()))));
+        assertEquals(expected, encoded);
+    }
+
+    @Test
+    void encode_ShouldReusePrefix_ForSameSystemPromptAndModel() throws Exception {
+        // Given
+        ChatCompletionRequest first = ChatCompletionRequest.builder().systemPrompt("system").userPrompt("один").build();
+        ChatCompletionRequest second = ChatCompletionRequest.builder().systemPrompt("system").userPrompt("два").build();
+
+        // When
+        encoder.encode(first, "model", false);
+        byte[] body = encoder.encode(second, "model", false);
+        encoder.encode(second, "model", true);
+
+        // Then
+        assertEquals(2, encoder.cachedPrefixCount());
+        assertEquals("два", objectMapper.readTree(body).at("/messages/1/content").asText());
+        assertFalse(objectMapper.readTree(body).has("max_tokens"));
+    }
+}
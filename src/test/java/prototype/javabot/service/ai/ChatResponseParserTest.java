@@ -0,0 +1,68 @@
+package prototype.javabot.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatResponseParserTest {
+
+    private final ChatResponseParser parser = new ChatResponseParser();
+
+    @Test
+    void parse_ShouldExtractContentAndUsage_SkippingOtherFields() throws Exception {
+        // Given
+        String json = """
+                {
+                    "id": "gen-1",
+                    "choices": [
+                        {"index": 0, "logprobs": {"content": [{"token": "x"}]}, "message": {"role": "assistant", "content": "Первый"}},
+                        {"index": 1, "message": {"content": "Второй"}}
+                    ],
+                    "provider": {"name": "test", "content": "не то"},
+                    "usage": {"prompt_tokens": 42, "completion_tokens": 7, "total_tokens": 49}
+                }
+                """;
+
+        // When
+        ChatResponseParser.ChatResponse response = parser.parse(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "message");
+
+        // Then
+        assertEquals("Первый", response.content());
+        assertEquals(new CompletionUsage(42, 7), response.usage());
+        assertNull(response.error());
+        assertTrue(response.hasChoices());
+    }
+
+    @Test
+    void parse_ShouldReturnError_AndEmptyChoices() throws Exception {
+        // When
+        ChatResponseParser.ChatResponse error = parser.parse("{\"error\":{\"code\":429,\"message\":\"Rate limit\"}}", "message");
+        ChatResponseParser.ChatResponse empty = parser.parse("{\"choices\":[]}", "message");
+
+        // Then
+        assertEquals("Rate limit", error.error());
+        assertFalse(empty.hasChoices());
+        assertEquals("", empty.content());
+    }
+
+    @Test
+    void parse_ShouldReadStreamingDelta() throws Exception {
+        // When
+        ChatResponseParser.ChatResponse delta = parser.parse("{\"choices\":[{\"delta\":{\"content\":\"При\"}}]}", "delta");
+        ChatResponseParser.ChatResponse roleOnly = parser.parse("{\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}", "delta");
+
+        // Then
+        assertEquals("При", delta.content());
+        assertEquals("", roleOnly.content());
+    }
+
+    @Test
+    void parse_ShouldFail_OnInvalidJson() {
+        assertThrows(JsonProcessingException.class, () -> parser.parse("Invalid JSON", "message"));
+    }
+}
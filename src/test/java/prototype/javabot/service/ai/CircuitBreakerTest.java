@@ -0,0 +1,113 @@
+package prototype.javabot.service.ai;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private MutableClock clock;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        circuitBreaker = new CircuitBreaker(50, 4, 4, Duration.ofSeconds(30), 2, clock);
+    }
+
+    @Test
+    void shouldOpen_WhenFailureRateReachesThreshold() {
+        // When
+        record(true, true, false, false);
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void shouldStayClosed_BeforeMinimumCalls() {
+        // When
+        record(true, true, true);
+
+        // Then
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void shouldClose_AfterSuccessfulHalfOpenProbes() {
+        // Given
+        record(true, true, true, true);
+        clock.advance(Duration.ofSeconds(31));
+
+        // When
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        // Then
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void shouldReopen_WhenHalfOpenProbeFails() {
+        // Given
+        record(true, true, true, true);
+        clock.advance(Duration.ofSeconds(31));
+
+        // When
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onError();
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void record(boolean... failures) {
+        for (boolean failed : failures) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            if (failed) {
+                circuitBreaker.onError();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairGenerationSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> started = new ArrayList<>();
+    private final Map<String, Sinks.One<String>> running = new HashMap<>();
+
+    @Test
+    void schedule_ShouldAlternateChats_InsteadOfFirstComeFirstServed() {
+        // Given: один слот на всех, чат A прислал три темы раньше, чем чат B одну
+        FairGenerationScheduler scheduler = new FairGenerationScheduler(meterRegistry, true, 1, 1, 20, Map.of());
+        submit(scheduler, "A", "A1");
+        submit(scheduler, "A", "A2");
+        submit(scheduler, "A", "A3");
+        submit(scheduler, "B", "B1");
+
+        // When
+        complete("A1");
+        complete("A2");
+        complete("B1");
+
+        // Then
+        assertEquals(List.of("A1", "A2", "B1", "A3"), started);
+    }
+
+    @Test
+    void schedule_ShouldServeWeightedChatMoreOften() {
+        // Given
+        FairGenerationScheduler scheduler = new FairGenerationScheduler(meterRegistry, true, 1, 1, 20, Map.of("A", 2));
+        submit(scheduler, "B", "B1");
+        submit(scheduler, "A", "A1");
+        submit(scheduler, "A", "A2");
+        submit(scheduler, "A", "A3");
+        submit(scheduler, "B", "B2");
+
+        // When
+        complete("B1");
+        complete("A1");
+        complete("A2");
+        complete("B2");
+
+        // Then: за круг A получает два слота, B — один
+        assertEquals(List.of("B1", "A1", "A2", "B2", "A3"), started);
+    }
+
+    @Test
+    void schedule_ShouldBoundInFlightPerChat() {
+        // Given: слотов много, но у чата не больше двух одновременно
+        FairGenerationScheduler scheduler = new FairGenerationScheduler(meterRegistry, true, 10, 2, 20, Map.of());
+
+        // When
+        submit(scheduler, "A", "A1");
+        submit(scheduler, "A", "A2");
+        submit(scheduler, "A", "A3");
+        submit(scheduler, "B", "B1");
+
+        // Then
+        assertEquals(List.of("A1", "A2", "B1"), started);
+        assertEquals(1, scheduler.getQueued());
+
+        complete("A1");
+        assertEquals(List.of("A1", "A2", "B1", "A3"), started);
+    }
+
+    @Test
+    void schedule_ShouldReleaseSlot_WhenCancelled_AndRejectWhenQueueFull() {
+        // Given
+        FairGenerationScheduler scheduler = new FairGenerationScheduler(meterRegistry, true, 1, 1, 1, Map.of());
+        Disposable first = submit(scheduler, "A", "A1");
+        Disposable waiting = submit(scheduler, "B", "B1");
+
+        // When & Then: вторая генерация в очереди B не помещается
+        StepVerifier.create(scheduler.schedule("B", () -> Mono.just("B2")))
+                .expectErrorMatches(e -> e instanceof AiUnavailableException
+                        && FairGenerationScheduler.QUEUE_FULL_MESSAGE.equals(((AiUnavailableException) e).getUserMessage()))
+                .verify();
+
+        waiting.dispose();
+        first.dispose();
+        assertEquals(0, scheduler.getInFlight());
+        assertEquals(0, scheduler.getQueued());
+
+        StepVerifier.create(scheduler.schedule("B", () -> Mono.just("B3")))
+                .expectNext("B3")
+                .verifyComplete();
+        // Отменённая до запуска генерация в ожидание не попадает
+        assertEquals(2, meterRegistry.get("ai.fair.queue.wait").timer().count());
+    }
+
+    @Test
+    void scheduleHedge_ShouldTakeFreeSlot_AndSkipWithoutQueueing_WhenPoolIsFull() {
+        // Given: два слота, один занят основной генерацией
+        FairGenerationScheduler scheduler = new FairGenerationScheduler(meterRegistry, true, 2, 2, 20, Map.of());
+        submit(scheduler, "A", "A1");
+        Sinks.One<String> hedge = Sinks.one();
+
+        // When: хедж занимает второй слот
+        Disposable hedgeCall = scheduler.scheduleHedge(hedge::asMono).subscribe();
+
+        // Then: новая генерация ждёт в очереди, а второй хедж не отправляется
+        assertEquals(2, scheduler.getInFlight());
+        submit(scheduler, "B", "B1");
+        assertEquals(List.of("A1"), started);
+        StepVerifier.create(scheduler.scheduleHedge(() -> Mono.just("лишний хедж")))
+                .verifyComplete();
+        assertEquals(1, scheduler.getQueued());
+
+        // Освободившийся после хеджа слот достаётся очереди
+        hedge.tryEmitValue("хедж");
+        assertEquals(List.of("A1", "B1"), started);
+        assertEquals(2, scheduler.getInFlight());
+        hedgeCall.dispose();
+    }
+
+    private Disposable submit(FairGenerationScheduler scheduler, String chatId, String name) {
+        Sinks.One<String> result = Sinks.one();
+        running.put(name, result);
+        return scheduler.schedule(chatId, () -> {
+            started.add(name);
+            return result.asMono();
+        }).subscribe();
+    }
+
+    private void complete(String name) {
+        running.get(name).tryEmitValue(name);
+    }
+}
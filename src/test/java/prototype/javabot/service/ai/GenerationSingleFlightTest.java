@@ -0,0 +1,77 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import prototype.javabot.model.ContentType;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationSingleFlightTest {
+
+    private GenerationSingleFlight singleFlight;
+    private final GenerationKey key = GenerationKey.of(GenerationRequest.of("Тема", ContentType.POST, null));
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new GenerationSingleFlight(new SimpleMeterRegistry(), true);
+    }
+
+    @Test
+    void execute_ShouldShareOneCall_BetweenConcurrentCallers() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+
+        // When
+        Mono<String> first = singleFlight.execute(key, () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        });
+        Mono<String> second = singleFlight.execute(key, () -> {
+            calls.incrementAndGet();
+            return Mono.just("другой ответ");
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> response.tryEmitValue("ответ"))
+                .assertNext(pair -> {
+                    assertEquals("ответ", pair.getT1());
+                    assertEquals("ответ", pair.getT2());
+                })
+                .verifyComplete();
+
+        // Then
+        assertEquals(1, calls.get());
+        assertEquals(2.0, singleFlight.getCoalescingFactor());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void execute_ShouldStartNewCall_AfterPreviousCompleted() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        singleFlight.execute(key, () -> Mono.just("1").doOnSubscribe(s -> calls.incrementAndGet())).block();
+        singleFlight.execute(key, () -> Mono.just("2").doOnSubscribe(s -> calls.incrementAndGet())).block();
+
+        // Then
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void execute_ShouldRemoveEntry_WhenCallFails() {
+        // When & Then
+        StepVerifier.create(singleFlight.execute(key, () -> Mono.error(new IllegalStateException("boom"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+}
@@ -0,0 +1,105 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    @Test
+    void execute_ShouldSendHedge_AndCancelSlowPrimary() {
+        // Given
+        HedgingPolicy policy = policy(1.0);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        // When & Then
+        StepVerifier.create(policy.execute(() -> attempts.incrementAndGet() == 1
+                        ? Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true))
+                        : Mono.just("хедж")))
+                .expectNext("хедж")
+                .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, policy.getFiredCount());
+        assertEquals(1.0, policy.getWonCount());
+    }
+
+    @Test
+    void execute_ShouldNotHedge_WhenPrimaryIsFast() {
+        // Given
+        HedgingPolicy policy = policy(1.0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(policy.execute(() -> {
+                    attempts.incrementAndGet();
+                    return Mono.just("быстро");
+                }))
+                .expectNext("быстро")
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, policy.getFiredCount());
+    }
+
+    @Test
+    void execute_ShouldRespectBudget() {
+        // Given
+        HedgingPolicy policy = policy(0.1);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(policy.execute(() -> attempts.incrementAndGet() == 1
+                        ? Mono.delay(Duration.ofMillis(150)).thenReturn("основной")
+                        : Mono.just("хедж")))
+                .expectNext("основной")
+                .verifyComplete();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, policy.getFiredCount());
+    }
+
+    @Test
+    void execute_ShouldPropagateError_WhenPrimaryFailsBeforeHedge() {
+        // Given
+        HedgingPolicy policy = policy(1.0);
+
+        // When & Then
+        StepVerifier.create(policy.execute(() -> Mono.error(new IllegalStateException("boom"))))
+                .expectErrorMessage("boom")
+                .verify(Duration.ofMillis(40));
+    }
+
+    @Test
+    void execute_ShouldWaitForPrimary_WhenHedgeIsSkipped() {
+        // Given: хедж не получил слот и вернул пустой ответ
+        HedgingPolicy policy = policy(1.0);
+        AtomicInteger hedges = new AtomicInteger();
+
+        // When & Then
+        StepVerifier.create(policy.execute(() -> Mono.delay(Duration.ofMillis(150)).thenReturn("основной"),
+                        () -> {
+                            hedges.incrementAndGet();
+                            return Mono.empty();
+                        }))
+                .expectNext("основной")
+                .verifyComplete();
+
+        assertEquals(1, hedges.get());
+        assertEquals(1.0, policy.getSkippedCount());
+        assertEquals(0.0, policy.getWonCount());
+    }
+
+    private HedgingPolicy policy(double budgetRatio) {
+        return new HedgingPolicy(new SimpleMeterRegistry(), true, 0.95, Duration.ofMillis(50), 0, 10, budgetRatio);
+    }
+}
@@ -0,0 +1,156 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmRouterTest {
+
+    private final ChatCompletionRequest request = ChatCompletionRequest.builder()
+            .systemPrompt("system")
+            .userPrompt("user")
+            .build();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void complete_ShouldFailOver_WhenFirstProviderFails() {
+        // Given
+        FakeProvider broken = new FakeProvider("broken", Mono.error(serverError()));
+        FakeProvider healthy = new FakeProvider("healthy", Mono.just("ответ"));
+        LlmRouter router = router(broken, healthy);
+
+        // When & Then
+        StepVerifier.create(router.complete(request).map(ChatCompletion::content))
+                .expectNext("ответ")
+                .verifyComplete();
+
+        assertEquals(1, broken.calls.get());
+        assertEquals(1, healthy.calls.get());
+        assertEquals(1.0, meterRegistry.get("ai.provider.failover").tag("provider", "broken").counter().count());
+    }
+
+    @Test
+    void complete_ShouldNotFailOver_OnClientError() {
+        // Given
+        WebClientResponseException badRequest = WebClientResponseException.create(
+                HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null);
+        FakeProvider first = new FakeProvider("first", Mono.error(badRequest));
+        FakeProvider second = new FakeProvider("second", Mono.just("ответ"));
+        LlmRouter router = router(first, second);
+
+        // When & Then
+        StepVerifier.create(router.complete(request).map(ChatCompletion::content))
+                .expectError(WebClientResponseException.class)
+                .verify();
+
+        assertEquals(0, second.calls.get());
+    }
+
+    @Test
+    void candidates_ShouldPreferProviderWithLowerLatency() {
+        // Given
+        FakeProvider slow = new FakeProvider("slow", Mono.delay(Duration.ofMillis(80)).thenReturn("медленно"));
+        FakeProvider fast = new FakeProvider("fast", Mono.just("быстро"));
+        LlmRouter router = router(slow, fast);
+
+        // When: первый запрос идёт к slow, затем к fast (у него ещё нет замеров)
+        router.complete(request).block();
+        router.complete(request).block();
+
+        // Then
+        assertEquals("fast", router.candidates().get(0).getProvider().getName());
+        StepVerifier.create(router.complete(request).map(ChatCompletion::content))
+                .expectNext("быстро")
+                .verifyComplete();
+    }
+
+    @Test
+    void stream_ShouldFailOver_OnlyBeforeFirstDelta() {
+        // Given
+        FakeProvider broken = new FakeProvider("broken", Flux.error(serverError()));
+        FakeProvider healthy = new FakeProvider("healthy", Flux.just("При", "вет"));
+        LlmRouter router = router(broken, healthy);
+
+        // When & Then
+        StepVerifier.create(router.stream(request).map(ChatCompletion::content))
+                .expectNext("При", "вет")
+                .verifyComplete();
+
+        FakeProvider partial = new FakeProvider("partial", Flux.concat(Flux.just("начало"), Flux.error(serverError())));
+        FakeProvider spare = new FakeProvider("spare", Flux.just("другое"));
+        StepVerifier.create(router(partial, spare).stream(request).map(ChatCompletion::content))
+                .expectNext("начало")
+                .expectError(WebClientResponseException.class)
+                .verify();
+        assertEquals(0, spare.calls.get());
+    }
+
+    private LlmRouter router(LlmProvider... providers) {
+        return new LlmRouter(List.of(providers), name -> new UpstreamGuard(name,
+                new AdaptiveConcurrencyLimiter(10, 1, 10, 0.9, 2.0),
+                new CircuitBreaker(50, 10, 10, Duration.ofSeconds(30), 1, Clock.systemUTC()),
+                Duration.ofSeconds(5), meterRegistry), meterRegistry);
+    }
+
+    private static WebClientResponseException serverError() {
+        return WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "Unavailable", null, null, null);
+    }
+
+    private static class FakeProvider implements LlmProvider {
+        private final String name;
+        private final Mono<String> response;
+        private final Flux<String> streamResponse;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FakeProvider(String name, Mono<String> response) {
+            this.name = name;
+            this.response = response;
+            this.streamResponse = Flux.empty();
+        }
+
+        FakeProvider(String name, Flux<String> streamResponse) {
+            this.name = name;
+            this.response = Mono.empty();
+            this.streamResponse = streamResponse;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Mono<ChatCompletion> complete(ChatCompletionRequest request) {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                return response.map(ChatCompletion::of);
+            });
+        }
+
+        @Override
+        public Flux<ChatCompletion> stream(ChatCompletionRequest request) {
+            return Flux.defer(() -> {
+                calls.incrementAndGet();
+                return streamResponse.map(ChatCompletion::of);
+            });
+        }
+    }
+}
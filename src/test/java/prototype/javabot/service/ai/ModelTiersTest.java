@@ -0,0 +1,70 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.ContentLength;
+import prototype.javabot.model.aiSettings.UserAiSetting;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelTiersTest {
+
+    private final ModelTier shortTier = ModelTier.builder().name("short").model("small").maxTokens(300).build();
+    private final ModelTier longTier = ModelTier.builder().name("long").model("large").maxTokens(2000).build();
+
+    private SimpleMeterRegistry meterRegistry;
+    private ModelTiers modelTiers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        modelTiers = new ModelTiers(List.of(
+                new ModelTiers.Rule(Set.of(ContentType.HASHTAGS, ContentType.TITLE), Set.of(), shortTier),
+                new ModelTiers.Rule(Set.of(), Set.of(ContentLength.LONG), longTier)
+        ), meterRegistry);
+    }
+
+    @Test
+    void resolve_ShouldMatchByContentTypeAndLength() {
+        // Given
+        UserAiSetting longSetting = UserAiSetting.builder().length(ContentLength.LONG).build();
+
+        // When & Then
+        assertEquals(shortTier, modelTiers.resolve(ContentType.HASHTAGS, longSetting));
+        assertEquals(longTier, modelTiers.resolve(ContentType.POST, longSetting));
+        assertEquals(ModelTier.DEFAULT, modelTiers.resolve(ContentType.POST, UserAiSetting.getDefault()));
+        assertEquals(ModelTier.DEFAULT, modelTiers.resolve(null, null));
+    }
+
+    @Test
+    void modelFor_ShouldPreferProviderSpecificModel() {
+        // Given
+        ModelTier tier = ModelTier.builder()
+                .name("short")
+                .model("small")
+                .providerModel("local", "llama3")
+                .build();
+
+        // When & Then
+        assertEquals("llama3", tier.modelFor("local", "default-model"));
+        assertEquals("small", tier.modelFor("openrouter", "default-model"));
+        assertEquals("default-model", ModelTier.DEFAULT.modelFor("openrouter", "default-model"));
+    }
+
+    @Test
+    void recordCompletion_ShouldCountTokensPerTier() {
+        // When
+        modelTiers.recordCompletion(shortTier, 1_000_000, new CompletionUsage(10, 5));
+        modelTiers.recordCompletion(shortTier, 2_000_000, new CompletionUsage(20, 7));
+
+        // Then
+        assertEquals(2, meterRegistry.get("ai.tier.latency").tag("tier", "short").timer().count());
+        assertEquals(30.0, meterRegistry.get("ai.tier.tokens").tag("tier", "short").tag("kind", "prompt").counter().count());
+        assertEquals(12.0, meterRegistry.get("ai.tier.tokens").tag("tier", "short").tag("kind", "completion").counter().count());
+    }
+}
@@ -0,0 +1,125 @@
+package prototype.javabot.service.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка провайдера против локального OpenAI-совместимого сервера-заглушки.
+ */
+class OpenAiCompatibleProviderTest {
+
+    private HttpServer server;
+    private OpenAiCompatibleProvider provider;
+    private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+    private final AtomicReference<String> lastAuthorization = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            lastRequestBody.set(body);
+            lastAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+
+            boolean stream = body.contains("\"stream\":true");
+            String response = stream
+                    ? "data: {\"choices\":[{\"delta\":{\"content\":\"При\"}}]}\n\n"
+                    + "data: {\"choices\":[{\"delta\":{\"content\":\"вет\"}}]}\n\n"
+                    + "data: {\"choices\":[],\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":2}}\n\n"
+                    + "data: [DONE]\n\n"
+                    : "{\"choices\":[{\"message\":{\"content\":\"Привет\"}}],"
+                    + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":3}}";
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().add("Content-Type", stream ? "text/event-stream" : "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/v1")
+                .build();
+        provider = new OpenAiCompatibleProvider("local", webClient, "local-key", "local-model");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void complete_ShouldCallChatCompletions() {
+        // Given
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .systemPrompt("Ты полезный ассистент.")
+                .userPrompt("Скажи привет")
+                .build();
+
+        // When & Then
+        StepVerifier.create(provider.complete(request))
+                .expectNext(new ChatCompletion("Привет", new CompletionUsage(12, 3)))
+                .verifyComplete();
+
+        assertEquals("Bearer local-key", lastAuthorization.get());
+        assertTrue(lastRequestBody.get().contains("\"model\":\"local-model\""));
+        assertTrue(lastRequestBody.get().contains("Скажи привет"));
+        assertFalse(lastRequestBody.get().contains("max_tokens"));
+    }
+
+    @Test
+    void complete_ShouldApplyTierModelAndLimits() {
+        // Given
+        ModelTier tier = ModelTier.builder()
+                .name("short")
+                .model("small-model")
+                .maxTokens(300)
+                .temperature(0.8)
+                .build();
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .systemPrompt("system")
+                .userPrompt("user")
+                .tier(tier)
+                .build();
+
+        // When
+        provider.complete(request).block();
+
+        // Then
+        String body = lastRequestBody.get();
+        assertTrue(body.contains("\"model\":\"small-model\""));
+        assertTrue(body.contains("\"max_tokens\":300"));
+        assertTrue(body.contains("\"temperature\":0.8"));
+    }
+
+    @Test
+    void stream_ShouldEmitDeltas() {
+        // Given
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .systemPrompt("system")
+                .userPrompt("user")
+                .build();
+
+        // When & Then
+        StepVerifier.create(provider.stream(request))
+                .expectNext(ChatCompletion.of("При"), ChatCompletion.of("вет"))
+                .expectNext(new ChatCompletion("", new CompletionUsage(5, 2)))
+                .verifyComplete();
+
+        assertTrue(lastRequestBody.get().contains("\"include_usage\":true"));
+    }
+}
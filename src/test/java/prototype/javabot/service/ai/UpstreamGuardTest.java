@@ -0,0 +1,90 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamGuardTest {
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private CircuitBreaker circuitBreaker;
+    private UpstreamGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 0.5, 2.0);
+        circuitBreaker = new CircuitBreaker(50, 2, 2, Duration.ofMinutes(1), 1, Clock.systemUTC());
+        guard = new UpstreamGuard("test", limiter, circuitBreaker, Duration.ofSeconds(5), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void protect_ShouldFailFast_WhenLimitIsReached() {
+        // Given
+        Sinks.One<String> pending1 = Sinks.one();
+        Sinks.One<String> pending2 = Sinks.one();
+        guard.protect(pending1.asMono()).subscribe();
+        guard.protect(pending2.asMono()).subscribe();
+
+        // When & Then
+        StepVerifier.create(guard.protect(Mono.just("x")))
+                .expectErrorSatisfies(e -> {
+                    assertInstanceOf(AiUnavailableException.class, e);
+                    assertEquals(UpstreamGuard.OVERLOADED_MESSAGE, e.getMessage());
+                })
+                .verify();
+
+        pending1.tryEmitValue("1");
+        pending2.tryEmitValue("2");
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void protect_ShouldOpenCircuit_AndRejectWithoutCalling_AfterServerErrors() {
+        // Given
+        WebClientResponseException serverError = WebClientResponseException.create(
+                HttpStatus.BAD_GATEWAY.value(), "Bad Gateway", null, null, null);
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(guard.protect(Mono.error(serverError)))
+                    .expectError(WebClientResponseException.class)
+                    .verify();
+        }
+
+        // Then
+        assertFalse(guard.isAvailable());
+        StepVerifier.create(guard.protect(Mono.fromCallable(() -> fail("Вызов не должен выполняться"))))
+                .expectErrorMessage(UpstreamGuard.CIRCUIT_OPEN_MESSAGE)
+                .verify();
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void protect_ShouldIgnoreClientErrors() {
+        // Given
+        WebClientResponseException badRequest = WebClientResponseException.create(
+                HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(guard.protect(Mono.error(badRequest)))
+                    .expectError(WebClientResponseException.class)
+                    .verify();
+        }
+
+        // Then
+        assertTrue(guard.isAvailable());
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
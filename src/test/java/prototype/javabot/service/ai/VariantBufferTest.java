@@ -0,0 +1,111 @@
+package prototype.javabot.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import prototype.javabot.model.ContentType;
+import prototype.javabot.model.aiSettings.ContentLength;
+import prototype.javabot.model.aiSettings.UserAiSetting;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantBufferTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VariantBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new VariantBuffer(meterRegistry, true, 2, Duration.ofMinutes(10), 100, 0);
+    }
+
+    @Test
+    void refill_ShouldGenerateUpToCapacity_AndPollInOrder() {
+        // Given
+        GenerationRequest request = request(ContentType.POST, UserAiSetting.getDefault());
+        AtomicInteger counter = new AtomicInteger();
+
+        // When
+        buffer.refill(request, () -> Mono.just(ChatCompletion.of("Вариант " + counter.incrementAndGet())));
+        buffer.refill(request, () -> Mono.just(ChatCompletion.of("Вариант " + counter.incrementAndGet())));
+
+        // Then
+        assertEquals(2, counter.get());
+        assertEquals("Вариант 1", polled(request));
+        assertEquals("Вариант 2", polled(request));
+        assertNull(polled(request));
+        assertEquals(2.0, meterRegistry.get("ai.prefetch.served").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void refill_ShouldNotOverGenerate_WhileVariantsArePending() {
+        // Given
+        GenerationRequest request = request(ContentType.POST, UserAiSetting.getDefault());
+        Sinks.One<ChatCompletion> pending = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        buffer.refill(request, () -> {
+            calls.incrementAndGet();
+            return pending.asMono();
+        });
+        buffer.refill(request, () -> {
+            calls.incrementAndGet();
+            return Mono.just(ChatCompletion.of("лишний"));
+        });
+
+        // Then
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void poll_ShouldMiss_WhenSettingsChanged() {
+        // Given
+        GenerationRequest request = request(ContentType.POST, UserAiSetting.getDefault());
+        buffer.refill(request, () -> Mono.just(ChatCompletion.of("Вариант")));
+
+        GenerationRequest longer = request(ContentType.POST, UserAiSetting.builder().length(ContentLength.LONG).build());
+
+        // When & Then
+        assertNull(polled(longer));
+        assertNull(polled(request(ContentType.TITLE, UserAiSetting.getDefault())));
+        assertEquals("Вариант", polled(request));
+    }
+
+    @Test
+    void invalidate_ShouldDropVariants_IncludingLateOnes() {
+        // Given
+        GenerationRequest request = request(ContentType.POST, UserAiSetting.getDefault());
+        Sinks.One<ChatCompletion> late = Sinks.one();
+        buffer.refill(request, late::asMono);
+
+        // When
+        buffer.invalidate("42");
+        late.tryEmitValue(ChatCompletion.of("Устаревший"));
+
+        // Then
+        assertNull(polled(request));
+        assertEquals(0, buffer.size("42"));
+    }
+
+    private String polled(GenerationRequest request) {
+        ChatCompletion variant = buffer.poll(request);
+        return variant != null ? variant.content() : null;
+    }
+
+    private GenerationRequest request(ContentType contentType, UserAiSetting setting) {
+        return GenerationRequest.builder()
+                .prompt("Тема")
+                .contentType(contentType)
+                .aiSetting(setting)
+                .chatId("42")
+                .freshVariant(true)
+                .build();
+    }
+}